@@ -0,0 +1,84 @@
+package hello.jdbc.connection;
+
+import ch.qos.logback.classic.Level;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 획득 + 반납 비용
+ * - driverManager : 매번 새 커넥션 (DBConnectionUtil 의 기존 방식)
+ * - simple : SimpleConnectionPool
+ * - hikari : HikariCP
+ *
+ * H2 메모리 DB 라 TCP 접속 비용이 빠져 있다. 실제 DB 에서는 driverManager 와의 차이가 훨씬 크다
+ * ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+    private static final int POOL_SIZE = 4;
+
+    @Param({"driverManager", "simple", "hikari"})
+    String pool;
+
+    DataSource dataSource;
+
+    @Setup
+    public void setup() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        switch (pool) {
+            case "simple":
+                dataSource = new SimpleConnectionPool(URL, "sa", "", POOL_SIZE, POOL_SIZE,
+                        Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ofMinutes(30));
+                break;
+            case "hikari":
+                HikariDataSource hikari = new HikariDataSource();
+                hikari.setJdbcUrl(URL);
+                hikari.setUsername("sa");
+                hikari.setMaximumPoolSize(POOL_SIZE);
+                dataSource = hikari;
+                break;
+            default:
+                dataSource = new DriverManagerDataSource(URL, "sa", "");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+
+    @Benchmark
+    public boolean acquireRelease() throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            return con.getAutoCommit();
+        }
+    }
+
+    // 풀 크기보다 많은 스레드가 경쟁
+    @Benchmark
+    @Threads(8)
+    public boolean acquireReleaseContended() throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            return con.getAutoCommit();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package hello.jdbc.repository;
+
+import ch.qos.logback.classic.Level;
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDbException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 조회 실패(miss)가 대부분인 존재 확인 워크로드
+ * - findById + NoSuchElementException catch
+ * - findByIdOptional + MyDbException throw/catch (스택 트레이스 有/無)
+ * - findByIdOptional
+ * - existsById
+ * - MyDbException 생성 비용 (스택 트레이스 有/無)
+ * stackless 파라미터는 MyDbException 을 던지는 벤치마크에만 적용된다 (ExceptionMode)
+ * NoSuchElementException 은 JDK 예외라 stackless 설정과 관계없다
+ *
+ * ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberLookupBenchmark {
+
+    private static final String MISSING_ID = "missing";
+
+    HikariDataSource dataSource;
+    MemberRepository repository;
+
+    @Setup
+    public void setup() throws SQLException {
+        // 커넥션 획득 로그가 측정값을 가리지 않도록
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:lookup;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+            stmt.execute("create table if not exists member (member_id varchar(10) primary key, money integer not null default 0)");
+        }
+        repository = new MemberRepositoryV4_1(dataSource);
+        repository.save(new Member("hit", 10000));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @State(Scope.Benchmark)
+    public static class ExceptionMode {
+
+        @Param({"false", "true"})
+        boolean stackless;
+
+        @Setup
+        public void setup() {
+            MyDbException.setStackless(stackless);
+        }
+
+        @TearDown
+        public void tearDown() {
+            MyDbException.setStackless(false);
+        }
+    }
+
+    @Benchmark
+    public void findByIdWithException(Blackhole bh) {
+        try {
+            bh.consume(repository.findById(MISSING_ID));
+        } catch (NoSuchElementException e) {
+            bh.consume(e);
+        }
+    }
+
+    // miss 를 stackless 설정이 적용되는 예외로 던지는 경우
+    @Benchmark
+    public void findByIdWithMyDbException(ExceptionMode mode, Blackhole bh) {
+        try {
+            bh.consume(repository.findByIdOptional(MISSING_ID)
+                    .orElseThrow(() -> new MyDbException("member not found memberId=" + MISSING_ID)));
+        } catch (MyDbException e) {
+            bh.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void findByIdOptional(Blackhole bh) {
+        bh.consume(repository.findByIdOptional(MISSING_ID));
+    }
+
+    @Benchmark
+    public void existsById(Blackhole bh) {
+        bh.consume(repository.existsById(MISSING_ID));
+    }
+
+    @Benchmark
+    public MyDbException createMyDbException(ExceptionMode mode) {
+        return new MyDbException("member not found");
+    }
+}
@@ -0,0 +1,103 @@
+package hello.jdbc.admission;
+
+import hello.jdbc.repository.ex.MyOverloadException;
+import hello.jdbc.support.Deadline;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * DB 작업 진입 제어 (bulkhead + load shedding)
+ * - 동시에 실행되는 작업 수를 커넥션 풀 크기 이하로 제한한다
+ * - 초과 요청은 maxQueueSize 까지만 마감 시각(Deadline) 안에서 기다린다
+ * - 예상 대기 시간(대기열 길이 x 평균 처리 시간 / 동시 실행 수)이 남은 시간을 넘으면 기다리지 않고 바로 MyOverloadException
+ * DB 가 느려져도 요청 스레드가 커넥션 풀 connectionTimeout 만큼 붙잡혀 있지 않게 된다
+ */
+public class AdmissionController {
+
+    private static final double EWMA_WEIGHT = 0.1;
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final int maxQueueSize;
+    private final Duration defaultTimeout;
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile double averageServiceNanos; // 근사값이면 충분하므로 경쟁 갱신을 허용
+
+    public AdmissionController(int maxConcurrency, int maxQueueSize, Duration defaultTimeout) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueueSize = maxQueueSize;
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public <T> T call(Supplier<T> work) {
+        return call(Deadline.after(defaultTimeout), work);
+    }
+
+    public void run(Runnable work) {
+        run(Deadline.after(defaultTimeout), work);
+    }
+
+    public void run(Deadline deadline, Runnable work) {
+        call(deadline, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T call(Deadline deadline, Supplier<T> work) {
+        acquire(deadline);
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(System.nanoTime() - start);
+            permits.release();
+        }
+    }
+
+    private void acquire(Deadline deadline) {
+        if (deadline.isExpired()) {
+            throw new MyOverloadException("deadline already exceeded");
+        }
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        int position = queued.incrementAndGet();
+        try {
+            if (position > maxQueueSize) {
+                throw new MyOverloadException("admission queue full size=" + maxQueueSize);
+            }
+            long predictedWaitNanos = (long) (averageServiceNanos * position / maxConcurrency);
+            if (predictedWaitNanos > deadline.remainingNanos()) {
+                throw new MyOverloadException("predicted wait " + predictedWaitNanos / 1_000_000 + "ms exceeds " + deadline);
+            }
+            if (!permits.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                throw new MyOverloadException("deadline exceeded while queued");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MyOverloadException("interrupted while queued", e);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void record(long serviceNanos) {
+        double average = averageServiceNanos;
+        averageServiceNanos = average == 0 ? serviceNanos : average + EWMA_WEIGHT * (serviceNanos - average);
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getInFlight() {
+        return maxConcurrency - permits.availablePermits();
+    }
+}
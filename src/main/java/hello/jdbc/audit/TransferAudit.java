@@ -0,0 +1,23 @@
+package hello.jdbc.audit;
+
+import lombok.Data;
+
+/**
+ * 계좌이체 감사 기록
+ * result : 성공이면 SUCCESS, 실패면 예외 클래스 이름
+ *          이체는 반환했지만 트랜잭션이 롤백되면 ROLLED_BACK, 커밋 결과를 알 수 없으면 UNKNOWN
+ */
+@Data
+public class TransferAudit {
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String ROLLED_BACK = "ROLLED_BACK";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final String fromId;
+    private final String toId;
+    private final int money;
+    private final String result;
+    private final long latencyMicros;
+    private final long occurredAt; // epoch millis
+}
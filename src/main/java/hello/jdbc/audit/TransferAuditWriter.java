@@ -0,0 +1,145 @@
+package hello.jdbc.audit;
+
+import hello.jdbc.support.MpscRingBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 감사 기록 비동기 저장
+ * 이체 스레드는 MpscRingBuffer 에 넣기만 하고(락, DB 접근 없음), writer 스레드가 모아서 JDBC 배치 insert 로 저장한다
+ * writer 는 이체 트랜잭션과 관계없이 DataSource 에서 직접 커넥션을 얻고, 배치마다 한번 커밋한다 (실패하면 배치 전체 롤백)
+ * 버퍼가 가득 차거나 close() 이후에 들어온 기록은 이체를 늦추지 않고 버린다 (dropped)
+ *
+ * create table transfer_audit (
+ *     audit_id bigint auto_increment primary key,
+ *     from_id varchar(10) not null,
+ *     to_id varchar(10) not null,
+ *     amount integer not null,
+ *     result varchar(100) not null,
+ *     latency_micros bigint not null,
+ *     occurred_at timestamp not null
+ * );
+ */
+@Slf4j
+public class TransferAuditWriter implements AutoCloseable {
+
+    private static final String INSERT_SQL = "insert into transfer_audit" +
+            "(from_id, to_id, amount, result, latency_micros, occurred_at) values (?, ?, ?, ?, ?, ?)";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final DataSource dataSource;
+    private final MpscRingBuffer<TransferAudit> buffer;
+    private final int batchSize;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Thread writer;
+    private final AtomicInteger recording = new AtomicInteger(); // closed 확인 후 버퍼에 넣는 중인 스레드 수
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    public TransferAuditWriter(DataSource dataSource, int capacity, int batchSize) {
+        this.dataSource = dataSource;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.writer = new Thread(this::run, "transfer-audit-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        writer.start();
+    }
+
+    // 이체 스레드에서 호출. 기다리지 않는다
+    public void record(TransferAudit audit) {
+        recording.incrementAndGet();
+        try {
+            if (closed || !buffer.offer(audit)) {
+                dropped.increment();
+            }
+        } finally {
+            recording.decrementAndGet();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    // 남은 기록을 모두 저장한 뒤 종료
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        // closed 를 false 로 본 record 가 버퍼에 넣기를 마친 뒤에 writer 를 멈춰야 마지막 drain 에 포함된다
+        while (recording.get() != 0) {
+            Thread.onSpinWait();
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+        // start() 없이 close() 한 경우 남은 기록
+        buffer.drain(audit -> dropped.increment(), Integer.MAX_VALUE);
+    }
+
+    private void run() {
+        List<TransferAudit> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            buffer.drain(batch::add, batchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    // 배치 하나를 하나의 트랜잭션으로. 일부만 저장되지 않는다
+    private void write(List<TransferAudit> batch) {
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement pstmt = con.prepareStatement(INSERT_SQL)) {
+                for (TransferAudit audit : batch) {
+                    pstmt.setString(1, audit.getFromId());
+                    pstmt.setString(2, audit.getToId());
+                    pstmt.setInt(3, audit.getMoney());
+                    pstmt.setString(4, audit.getResult());
+                    pstmt.setLong(5, audit.getLatencyMicros());
+                    pstmt.setTimestamp(6, new Timestamp(audit.getOccurredAt()));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true); // 커넥션 풀 고려
+            }
+            written.add(batch.size());
+        } catch (SQLException | RuntimeException e) {
+            failed.add(batch.size());
+            log.error("transfer audit write failed size={}", batch.size(), e); // 스레드가 종료되지 않도록 여기서 처리
+        }
+    }
+}
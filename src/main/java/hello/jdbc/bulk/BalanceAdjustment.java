@@ -0,0 +1,40 @@
+package hello.jdbc.bulk;
+
+/**
+ * 대량 잔액 조정 종류
+ * set 절과 추가 조건은 member 전체에 set-based update 로 적용된다. ? 에는 모두 amount 가 바인딩된다
+ */
+public enum BalanceAdjustment {
+
+    INTEREST("money = money + cast(money as bigint) * ? / 10000", " and money > 0"), // amount = 이율 (bp, 1/10000). 곱셈은 bigint 로 (int 범위 초과 방지)
+    FEE("money = money - ?", " and money >= ?"),                    // 잔액이 부족한 회원은 제외
+    PROMOTION("money = money + ?", "");
+
+    private final String setClause;
+    private final String condition;
+
+    BalanceAdjustment(String setClause, String condition) {
+        this.setClause = setClause;
+        this.condition = condition;
+    }
+
+    String getSetClause() {
+        return setClause;
+    }
+
+    String getCondition() {
+        return condition;
+    }
+
+    int setParameterCount() {
+        return count(setClause);
+    }
+
+    int conditionParameterCount() {
+        return count(condition);
+    }
+
+    private static int count(String sql) {
+        return (int) sql.chars().filter(c -> c == '?').count();
+    }
+}
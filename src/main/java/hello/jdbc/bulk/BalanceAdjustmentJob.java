@@ -0,0 +1,374 @@
+package hello.jdbc.bulk;
+
+import hello.jdbc.event.MemberChangeOutbox;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.support.KeyBoundaries;
+import hello.jdbc.support.KeyRangeCondition;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대량 잔액 조정 작업 (이자, 수수료, 프로모션)
+ * - plan : member_id 순서로 chunkSize 건마다 경계 키를 구해서 (KeyBoundaries) 청크 목록을 balance_job_chunk 에 저장한다
+ * - run : READY 청크들을 workers 개 스레드에서 나눠서 처리. 청크마다 짧은 트랜잭션 하나로
+ *         청크 선점(DONE 표시) + member set-based update 를 같이 커밋한다
+ *         => 중간에 죽어도 커밋된 청크는 DONE, 나머지는 READY 로 남으므로 같은 jobId 로 다시 run 하면 이어서 처리 (중복 적용 없음)
+ * - MemberRepository.update 를 회원마다 호출하는 것과 달리 청크 단위로만 row lock 을 잡고, 청크당 왕복 3번이면 된다
+ *
+ * 주의! member 를 직접 update 하므로 CachedMemberRepository 의 캐시는 갱신되지 않는다
+ * MemberChangeOutbox 를 넘기면 회원을 바꾼 청크 트랜잭션마다 일괄 변경 이벤트(ALL_MEMBERS)를 기록한다 (이전 캐시 스냅샷을 쓰지 않도록)
+ *
+ * create table balance_job (
+ *     job_id varchar(36) primary key,
+ *     adjustment varchar(20) not null,
+ *     amount integer not null,
+ *     first_id varchar(10),   -- 대상 범위 (포함), null 이면 처음부터
+ *     last_id varchar(10),    -- 대상 범위 (포함), null 이면 끝까지
+ *     status varchar(10) not null,
+ *     created_at timestamp default current_timestamp not null
+ * );
+ *
+ * create table balance_job_chunk (
+ *     job_id varchar(36) not null,
+ *     chunk_no integer not null,
+ *     from_id varchar(10),    -- 미포함, null 이면 처음부터
+ *     to_id varchar(10),      -- 포함, null 이면 끝까지
+ *     status varchar(10) not null,
+ *     updated_rows integer,
+ *     primary key (job_id, chunk_no)
+ * );
+ */
+@Slf4j
+public class BalanceAdjustmentJob {
+
+    static final String READY = "READY";
+    static final String DONE = "DONE";
+
+    private final DataSource dataSource;
+    private final MemberChangeOutbox changeOutbox; // null 이면 이벤트 없음
+    private final int workers;
+    private final int chunkSize;
+
+    public BalanceAdjustmentJob(DataSource dataSource, int workers, int chunkSize) {
+        this(dataSource, null, workers, chunkSize);
+    }
+
+    public BalanceAdjustmentJob(DataSource dataSource, MemberChangeOutbox changeOutbox, int workers, int chunkSize) {
+        this.dataSource = dataSource;
+        this.changeOutbox = changeOutbox;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+    }
+
+    public Result submit(BalanceAdjustment adjustment, int amount, String firstId, String lastId) {
+        return run(plan(adjustment, amount, firstId, lastId));
+    }
+
+    // 작업과 청크 목록을 하나의 트랜잭션으로 저장하고 jobId 를 반환
+    public String plan(BalanceAdjustment adjustment, int amount, String firstId, String lastId) {
+        validation(adjustment, amount); // balance_job 에 기록하기 전에 검증
+        String jobId = UUID.randomUUID().toString();
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                insertJob(con, jobId, adjustment, amount, firstId, lastId);
+                int chunks = insertChunks(con, jobId, KeyBoundaries.find(con, "member", "member_id", firstId, lastId, chunkSize));
+                con.commit();
+                log.info("plan jobId={}, adjustment={}, amount={}, chunks={}", jobId, adjustment, amount, chunks);
+                return jobId;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // READY 청크를 병렬로 처리. 실패한 청크는 READY 로 남고, 전부 DONE 이면 작업도 DONE
+    public Result run(String jobId) {
+        long start = System.currentTimeMillis();
+        Job job = findJob(jobId);
+        List<Chunk> chunks = findReadyChunks(jobId);
+        Result result = new Result(jobId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, chunks.size())));
+        try {
+            List<Future<Integer>> futures = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                futures.add(executor.submit(() -> apply(job, chunk)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    int updated = futures.get(i).get();
+                    if (updated < 0) {
+                        result.skippedChunks++; // 다른 워커/프로세스가 이미 처리
+                    } else {
+                        result.appliedChunks++;
+                        result.updatedRows += updated;
+                    }
+                } catch (ExecutionException e) {
+                    result.failedChunks++;
+                    log.error("chunk failed jobId={}, chunk={}", jobId, chunks.get(i), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("balance adjustment interrupted jobId=" + jobId, e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (result.failedChunks == 0) {
+            result.completed = completeJob(jobId);
+        }
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        log.info("run {}", result);
+        return result;
+    }
+
+    // 재시작 시 이어서 처리할 작업 목록
+    public List<String> findUnfinishedJobIds() {
+        String sql = "select job_id from balance_job where status <> ? order by created_at";
+
+        try (Connection con = dataSource.getConnection(); PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, DONE);
+            List<String> jobIds = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    jobIds.add(rs.getString(1));
+                }
+            }
+            return jobIds;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // 청크 하나를 짧은 트랜잭션으로 적용. 이미 DONE 이면 -1
+    private int apply(Job job, Chunk chunk) throws SQLException {
+        String claimSql = "update balance_job_chunk set status = ? where job_id = ? and chunk_no = ? and status = ?";
+        // 청크마다 경계가 있는 조건만 넣어서 member_id 인덱스 range scan 이 되게 한다
+        KeyRangeCondition range = new KeyRangeCondition("member_id")
+                .greaterThan(chunk.fromId)
+                .lessOrEqual(chunk.toId)
+                .greaterOrEqual(job.firstId)
+                .lessOrEqual(job.lastId);
+        String updateSql = "update member set " + job.adjustment.getSetClause()
+                + range.toWhereClause() + job.adjustment.getCondition();
+        String checkpointSql = "update balance_job_chunk set updated_rows = ? where job_id = ? and chunk_no = ?";
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                // 청크 row lock 으로 같은 청크를 동시에 적용하지 못하게 먼저 선점
+                try (PreparedStatement pstmt = con.prepareStatement(claimSql)) {
+                    pstmt.setString(1, DONE);
+                    pstmt.setString(2, job.jobId);
+                    pstmt.setInt(3, chunk.chunkNo);
+                    pstmt.setString(4, READY);
+                    if (pstmt.executeUpdate() == 0) {
+                        con.rollback();
+                        return -1;
+                    }
+                }
+
+                int updated;
+                try (PreparedStatement pstmt = con.prepareStatement(updateSql)) {
+                    int index = 1;
+                    for (int i = 0; i < job.adjustment.setParameterCount(); i++) {
+                        pstmt.setInt(index++, job.amount);
+                    }
+                    index = range.bind(pstmt, index);
+                    for (int i = 0; i < job.adjustment.conditionParameterCount(); i++) {
+                        pstmt.setInt(index++, job.amount);
+                    }
+                    updated = pstmt.executeUpdate();
+                }
+                if (updated > 0 && changeOutbox != null) {
+                    changeOutbox.appendAllMembersChanged(con, job.jobId);
+                }
+
+                try (PreparedStatement pstmt = con.prepareStatement(checkpointSql)) {
+                    pstmt.setInt(1, updated);
+                    pstmt.setString(2, job.jobId);
+                    pstmt.setInt(3, chunk.chunkNo);
+                    pstmt.executeUpdate();
+                }
+
+                con.commit();
+                log.debug("chunk applied jobId={}, chunk={}, updated={}", job.jobId, chunk, updated);
+                return updated;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    // 수수료/프로모션 금액이 0 이하면 반대 방향으로 잔액이 바뀐다 (음수 수수료 = 입금)
+    private void validation(BalanceAdjustment adjustment, int amount) {
+        if ((adjustment == BalanceAdjustment.FEE || adjustment == BalanceAdjustment.PROMOTION) && amount <= 0) {
+            throw new IllegalArgumentException("조정 금액은 0보다 커야 합니다. adjustment=" + adjustment + ", amount=" + amount);
+        }
+    }
+
+    private void insertJob(Connection con, String jobId, BalanceAdjustment adjustment, int amount,
+                           String firstId, String lastId) throws SQLException {
+        String sql = "insert into balance_job(job_id, adjustment, amount, first_id, last_id, status) values (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, jobId);
+            pstmt.setString(2, adjustment.name());
+            pstmt.setInt(3, amount);
+            pstmt.setString(4, firstId);
+            pstmt.setString(5, lastId);
+            pstmt.setString(6, READY);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // 경계 키 n 개 => 청크 n + 1 개 (마지막 청크는 끝 제한 없음)
+    private int insertChunks(Connection con, String jobId, List<String> boundaries) throws SQLException {
+        String sql = "insert into balance_job_chunk(job_id, chunk_no, from_id, to_id, status) values (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = con.prepareStatement(sql)) {
+            String lower = null;
+            for (int i = 0; i <= boundaries.size(); i++) {
+                String upper = i < boundaries.size() ? boundaries.get(i) : null;
+                pstmt.setString(1, jobId);
+                pstmt.setInt(2, i);
+                pstmt.setString(3, lower);
+                pstmt.setString(4, upper);
+                pstmt.setString(5, READY);
+                pstmt.addBatch();
+                lower = upper;
+            }
+            pstmt.executeBatch();
+            return boundaries.size() + 1;
+        }
+    }
+
+    private Job findJob(String jobId) {
+        String sql = "select adjustment, amount, first_id, last_id from balance_job where job_id = ?";
+
+        try (Connection con = dataSource.getConnection(); PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, jobId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new NoSuchElementException("balance job not found jobId=" + jobId);
+                }
+                return new Job(jobId, BalanceAdjustment.valueOf(rs.getString("adjustment")), rs.getInt("amount"),
+                        rs.getString("first_id"), rs.getString("last_id"));
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    private List<Chunk> findReadyChunks(String jobId) {
+        String sql = "select chunk_no, from_id, to_id from balance_job_chunk where job_id = ? and status = ? order by chunk_no";
+
+        try (Connection con = dataSource.getConnection(); PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, jobId);
+            pstmt.setString(2, READY);
+            List<Chunk> chunks = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    chunks.add(new Chunk(rs.getInt("chunk_no"), rs.getString("from_id"), rs.getString("to_id")));
+                }
+            }
+            return chunks;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // 남은 READY 청크가 없을 때만 작업을 DONE 으로
+    private boolean completeJob(String jobId) {
+        String sql = "update balance_job set status = ? where job_id = ?" +
+                " and not exists (select 1 from balance_job_chunk c where c.job_id = ? and c.status <> ?)";
+
+        try (Connection con = dataSource.getConnection(); PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, DONE);
+            pstmt.setString(2, jobId);
+            pstmt.setString(3, jobId);
+            pstmt.setString(4, DONE);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Result {
+
+        private final String jobId;
+        private int appliedChunks;
+        private int skippedChunks;
+        private int failedChunks;
+        private long updatedRows;
+        private boolean completed;
+        private long elapsedMillis;
+
+        private Result(String jobId) {
+            this.jobId = jobId;
+        }
+    }
+
+    private static final class Job {
+
+        private final String jobId;
+        private final BalanceAdjustment adjustment;
+        private final int amount;
+        private final String firstId;
+        private final String lastId;
+
+        private Job(String jobId, BalanceAdjustment adjustment, int amount, String firstId, String lastId) {
+            this.jobId = jobId;
+            this.adjustment = adjustment;
+            this.amount = amount;
+            this.firstId = firstId;
+            this.lastId = lastId;
+        }
+    }
+
+    private static final class Chunk {
+
+        private final int chunkNo;
+        private final String fromId;
+        private final String toId;
+
+        private Chunk(int chunkNo, String fromId, String toId) {
+            this.chunkNo = chunkNo;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        public String toString() {
+            return chunkNo + "(" + fromId + ", " + toId + "]";
+        }
+    }
+}
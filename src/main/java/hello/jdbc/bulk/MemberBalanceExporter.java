@@ -0,0 +1,133 @@
+package hello.jdbc.bulk;
+
+import hello.jdbc.repository.ex.MyDbException;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 회원 잔액 export (바이너리)
+ * member 테이블을 forward-only 커서로 fetchSize 단위로 읽으면서 바로 파일에 쓴다 (전체를 메모리에 올리지 않는다)
+ *
+ * 파일 형식 (big endian)
+ * - header : magic "MBAL"(4) + version(1) + flags(1, 1 = 이후 내용 gzip)
+ * - record : member_id 길이(1) + member_id(ASCII) + money(4)
+ * - trailer : 0(1) + 회원 수(8) + 잔액 합계(8)
+ * member_id 에 ASCII 가 아닌 문자가 있으면 export 를 실패시킨다 (? 로 바꿔 쓰지 않는다)
+ * 읽기는 MemberBalanceReader
+ */
+@Slf4j
+public class MemberBalanceExporter {
+
+    static final int MAGIC = 0x4D42414C; // "MBAL"
+    static final byte VERSION = 1;
+    static final byte FLAG_GZIP = 1;
+    static final int HEADER_SIZE = 6;
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_MEMBER_ID_LENGTH = 255;
+
+    private static final String SELECT_SQL = "select member_id, money from member order by member_id";
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+
+    public MemberBalanceExporter(DataSource dataSource, int fetchSize) {
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+    }
+
+    // export 한 회원 수 반환
+    public long export(Path file, boolean compress) {
+        try (Connection con = dataSource.getConnection();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).put(VERSION).put(compress ? FLAG_GZIP : 0);
+            buffer.flip();
+            channel.write(buffer);
+            buffer.clear();
+
+            GZIPOutputStream gzip = compress ? new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) : null;
+            WritableByteChannel out = compress ? Channels.newChannel(gzip) : channel;
+            long count = 0;
+            long total = 0;
+            CharsetEncoder ascii = StandardCharsets.US_ASCII.newEncoder(); // 매핑할 수 없는 문자는 REPORT (예외)
+
+            con.setAutoCommit(false); // 드라이버에 따라 fetchSize 는 트랜잭션 안에서만 적용된다
+            try (Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                try (ResultSet rs = stmt.executeQuery(SELECT_SQL)) {
+                    while (rs.next()) {
+                        byte[] memberId = encode(ascii, rs.getString(1));
+                        if (memberId.length == 0 || memberId.length > MAX_MEMBER_ID_LENGTH) {
+                            throw new IllegalStateException("member_id length=" + memberId.length);
+                        }
+                        int money = rs.getInt(2);
+                        if (buffer.remaining() < 1 + memberId.length + 4) {
+                            drain(buffer, out);
+                        }
+                        buffer.put((byte) memberId.length).put(memberId).putInt(money);
+                        count++;
+                        total += money;
+                    }
+                }
+            } finally {
+                con.rollback(); // 읽기만 했으므로
+                con.setAutoCommit(true);
+            }
+
+            if (buffer.remaining() < 1 + 8 + 8) {
+                drain(buffer, out);
+            }
+            buffer.put((byte) 0).putLong(count).putLong(total);
+            drain(buffer, out);
+            if (gzip != null) {
+                gzip.finish(); // gzip trailer 기록 (channel 은 닫지 않는다)
+            }
+            channel.force(false);
+
+            log.info("export file={}, count={}, total={}, size={}", file, count, total, channel.size());
+            return count;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] encode(CharsetEncoder encoder, String memberId) {
+        try {
+            ByteBuffer encoded = encoder.encode(CharBuffer.wrap(memberId));
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes;
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException("non-ASCII member_id=" + memberId, e);
+        }
+    }
+
+    private void drain(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package hello.jdbc.bulk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.GZIPInputStream;
+
+import static hello.jdbc.bulk.MemberBalanceExporter.*;
+
+/**
+ * MemberBalanceExporter 가 만든 파일 읽기
+ * 끝까지 읽은 뒤 trailer 의 회원 수/잔액 합계와 비교해서 잘리거나 깨진 파일이면 예외
+ */
+public class MemberBalanceReader {
+
+    // 회원마다 consumer(memberId, money) 호출. 읽은 회원 수 반환
+    public static long read(Path file, ObjIntConsumer<String> consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.limit(0);
+            if (!fill(buffer, channel, HEADER_SIZE) || buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("not a member balance file=" + file);
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalStateException("unsupported version=" + version);
+            }
+            boolean compressed = (buffer.get() & FLAG_GZIP) != 0;
+            ReadableByteChannel in = channel;
+            if (compressed) {
+                channel.position(HEADER_SIZE);
+                buffer.limit(0);
+                in = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            }
+
+            byte[] memberId = new byte[MAX_MEMBER_ID_LENGTH];
+            long count = 0;
+            long total = 0;
+            while (true) {
+                require(fill(buffer, in, 1), file);
+                int length = buffer.get() & 0xFF;
+                if (length == 0) {
+                    break; // trailer
+                }
+                require(fill(buffer, in, length + 4), file);
+                buffer.get(memberId, 0, length);
+                int money = buffer.getInt();
+                consumer.accept(new String(memberId, 0, length, StandardCharsets.US_ASCII), money);
+                count++;
+                total += money;
+            }
+
+            require(fill(buffer, in, 16), file);
+            long expectedCount = buffer.getLong();
+            long expectedTotal = buffer.getLong();
+            if (fill(buffer, in, 1)) { // gzip 이면 끝까지 읽어야 CRC 까지 검증된다
+                throw new IllegalStateException("unexpected data after trailer file=" + file);
+            }
+            if (count != expectedCount || total != expectedTotal) {
+                throw new IllegalStateException("corrupted file=" + file + ", count=" + count + "/" + expectedCount
+                        + ", total=" + total + "/" + expectedTotal);
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // buffer 에 읽을 수 있는 byte 가 size 이상이 되도록 채운다. 파일이 먼저 끝나면 false
+    private static boolean fill(ByteBuffer buffer, ReadableByteChannel in, int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < size) {
+            if (in.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static void require(boolean available, Path file) {
+        if (!available) {
+            throw new IllegalStateException("truncated file=" + file);
+        }
+    }
+}
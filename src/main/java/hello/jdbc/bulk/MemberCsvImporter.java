@@ -0,0 +1,465 @@
+package hello.jdbc.bulk;
+
+import hello.jdbc.repository.ex.MyDbException;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원 CSV 대량 적재 (member_id,money 한 줄에 한 회원, 첫 줄 헤더는 생략 가능)
+ * - 파일을 줄 경계 기준으로 partitions 개 구간으로 나누고, 구간마다 별도 스레드/커넥션에서 적재
+ * - 각 구간은 FileChannel.map 으로 매핑해서 byte 단위로 파싱한다 (줄마다 String/split 을 만들지 않는다. member_id 파라미터만 String 생성)
+ * - 없는 회원만 insert 하는 배치로 batchSize 건마다 커밋하고, 구간별 다음 줄의 위치를 체크포인트 파일에 기록
+ * - 중간에 실패하면 같은 파일/같은 partitions 로 다시 실행해서 체크포인트부터 이어서 적재
+ * - 이미 있는 member_id 는 덮어쓰지 않고 건너뛰어 결과(Result.skipped)로 알려준다
+ *   (체크포인트 기록 직전에 죽어서 다시 적재한 배치의 회원도 여기에 포함될 수 있다)
+ *   없던 회원만 생기므로 회원 캐시(조회된 회원만 담는다)와 캐시 스냅샷에 남은 값이 틀려지지 않는다 (변경 이벤트를 남기지 않는 이유)
+ * - member_id 는 ASCII 만, money 는 0 이상만 허용한다 (아니면 IllegalArgumentException)
+ *
+ * 주의! DataSource 는 partitions 개 이상의 커넥션을 줄 수 있어야 한다
+ */
+@Slf4j
+public class MemberCsvImporter {
+
+    private static final String INSERT_SQL = "insert into member(member_id, money)" +
+            " select ?, ? from dual where not exists (select 1 from member where member_id = ?)";
+    private static final String CSVREAD_SQL = "insert into member(member_id, money)" +
+            " select c.member_id, cast(c.money as integer) from csvread(%s) c" +
+            " where not exists (select 1 from member m where m.member_id = c.member_id)";
+    private static final String CSVREAD_CHECK_SQL = "select c.member_id, cast(c.money as integer) < 0 as negative" +
+            " from csvread(%s) c" +
+            " where cast(c.money as integer) < 0 or exists (select 1 from member m where m.member_id = c.member_id)";
+
+    private static final long MAP_WINDOW = 256L << 20; // 한번에 매핑하는 크기 (MappedByteBuffer 는 2GB 까지)
+    private static final int MAX_MEMBER_ID_LENGTH = 10;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+    private static final int MAX_SKIPPED_SAMPLES = 100;
+
+    private final DataSource dataSource;
+    private final int partitions;
+    private final int batchSize;
+
+    public MemberCsvImporter(DataSource dataSource, int partitions, int batchSize) {
+        this.dataSource = dataSource;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+    }
+
+    // 체크포인트는 {csv}.checkpoint. 전부 적재되면 삭제한다
+    public Result importFile(Path csv) {
+        return importFile(csv, csv.resolveSibling(csv.getFileName() + ".checkpoint"));
+    }
+
+    public Result importFile(Path csv, Path checkpointFile) {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = partitionBounds(channel, size);
+            Checkpoint checkpoint = Checkpoint.load(checkpointFile, size, bounds);
+            Progress progress = new Progress(size, checkpoint.remaining(bounds));
+            Skipped skipped = new Skipped();
+            log.info("import start file={}, size={}, partitions={}, resumed={}", csv, size, partitions, checkpoint.resumed);
+
+            ExecutorService executor = Executors.newFixedThreadPool(partitions);
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+            reporter.scheduleAtFixedRate(progress::log, PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            try {
+                List<Future<Long>> futures = new ArrayList<>();
+                for (int i = 0; i < partitions; i++) {
+                    int partition = i;
+                    futures.add(executor.submit(() ->
+                            importPartition(channel, partition, checkpoint.offset(partition), bounds[partition + 1],
+                                    checkpoint, progress, skipped)));
+                }
+                long rows = 0;
+                for (Future<Long> future : futures) {
+                    rows += await(future);
+                }
+                Files.deleteIfExists(checkpointFile);
+                progress.log();
+                Result result = skipped.result(rows);
+                log.info("import done file={}, {}", csv, result);
+                if (result.skipped > 0) {
+                    log.warn("member_id already exists, not imported count={}, samples={}", result.skipped, result.skippedSamples);
+                }
+                return result;
+            } finally {
+                reporter.shutdownNow();
+                executor.shutdownNow();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * H2 CSVREAD : DB 서버가 파일을 직접 읽어서 한 문장으로 적재한다 (가장 빠르지만 파일이 DB 서버에 있어야 한다)
+     * 첫 줄은 컬럼명 헤더(member_id,money) 여야 하고, 체크포인트/진행률은 없다
+     * H2 는 prepare 시점에 파일 헤더를 읽어 컬럼을 정하므로 파일 경로를 파라미터(?)로 바인딩할 수 없다 -> 문자열 리터럴로 넣는다
+     * 음수 금액이 있으면 아무것도 넣지 않고 IllegalArgumentException. 이미 있는 회원은 건너뛴다 (같은 트랜잭션에서 먼저 확인)
+     */
+    public Result importWithCsvRead(String serverPath) {
+        String file = "'" + serverPath.replace("'", "''") + "'";
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                Skipped skipped = new Skipped();
+                try (PreparedStatement pstmt = con.prepareStatement(String.format(CSVREAD_CHECK_SQL, file));
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getBoolean("negative")) {
+                            throw new IllegalArgumentException("invalid money memberId=" + rs.getString("member_id"));
+                        }
+                        skipped.add(rs.getString("member_id"));
+                    }
+                }
+                int inserted;
+                try (PreparedStatement pstmt = con.prepareStatement(String.format(CSVREAD_SQL, file))) {
+                    inserted = pstmt.executeUpdate();
+                }
+                con.commit();
+                Result result = skipped.result(inserted + skipped.count.get());
+                log.info("csvread file={}, {}", serverPath, result);
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // 구간 [start, end) 적재. 적재한 줄 수 반환
+    private long importPartition(FileChannel channel, int partition, long start, long end,
+                                 Checkpoint checkpoint, Progress progress, Skipped skipped) throws IOException, SQLException {
+        long rows = 0;
+        try (Connection con = dataSource.getConnection(); PreparedStatement pstmt = con.prepareStatement(INSERT_SQL)) {
+            con.setAutoCommit(false);
+            byte[] memberId = new byte[MAX_MEMBER_ID_LENGTH];
+            List<String> batchIds = new ArrayList<>(batchSize); // 배치 결과 건수로 건너뛴 회원을 찾는다
+            int pending = 0;
+            long position = start;
+
+            while (position < end) {
+                long windowSize = Math.min(MAP_WINDOW, end - position);
+                boolean lastWindow = position + windowSize == end;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int limit = (int) windowSize;
+                int lineStart = 0;
+
+                for (int i = 0; i <= limit; i++) {
+                    boolean lineEnd = i < limit ? window.get(i) == '\n' : lastWindow && lineStart < limit; // 마지막 줄 개행 없음
+                    if (!lineEnd) {
+                        continue;
+                    }
+                    boolean header = position + lineStart == 0 && isHeader(window, lineStart, i);
+                    if (!header && i > lineStart && bind(window, lineStart, i, memberId, pstmt, position, batchIds)) {
+                        pstmt.addBatch();
+                        rows++;
+                        if (++pending == batchSize) {
+                            commit(con, pstmt, batchIds, skipped);
+                            checkpoint.update(partition, position + Math.min(i + 1, limit));
+                            progress.done(pending);
+                            pending = 0;
+                        }
+                    }
+                    lineStart = i + 1;
+                }
+
+                if (lineStart == 0 && !lastWindow) {
+                    throw new IllegalStateException("line too long at offset=" + position);
+                }
+                long consumed = Math.min(lineStart, limit);
+                progress.read(consumed);
+                position += consumed; // 잘린 마지막 줄은 다음 window 에서 다시 읽는다
+            }
+
+            if (pending > 0) {
+                commit(con, pstmt, batchIds, skipped);
+                progress.done(pending);
+            }
+            checkpoint.update(partition, end);
+        }
+        return rows;
+    }
+
+    // 한 줄 [from, to) 를 파라미터로 바인딩. 빈 줄이면 false
+    private boolean bind(ByteBuffer line, int from, int to, byte[] memberId, PreparedStatement pstmt, long base,
+                         List<String> batchIds) throws SQLException {
+        if (to > from && line.get(to - 1) == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return false;
+        }
+        int comma = indexOf(line, from, to, (byte) ',');
+        int idLength = comma - from;
+        if (comma < 0 || idLength == 0 || idLength > MAX_MEMBER_ID_LENGTH) {
+            throw new IllegalArgumentException("invalid member_id at offset=" + (base + from));
+        }
+        for (int i = 0; i < idLength; i++) {
+            byte b = line.get(from + i);
+            if (b < 0) { // UTF-8 등 멀티바이트 문자
+                throw new IllegalArgumentException("non-ASCII member_id at offset=" + (base + from));
+            }
+            memberId[i] = b;
+        }
+        String id = new String(memberId, 0, idLength, StandardCharsets.US_ASCII);
+        pstmt.setString(1, id);
+        pstmt.setInt(2, parseMoney(line, comma + 1, to, base));
+        pstmt.setString(3, id);
+        batchIds.add(id);
+        return true;
+    }
+
+    // 첫 줄의 money 가 숫자가 아니면 헤더
+    private boolean isHeader(ByteBuffer line, int from, int to) {
+        int comma = indexOf(line, from, to, (byte) ',');
+        if (comma < 0 || comma + 1 >= to) {
+            return false;
+        }
+        byte first = line.get(comma + 1);
+        return first != '-' && (first < '0' || first > '9');
+    }
+
+    // 0 이상의 정수만 허용 (부호 없음)
+    private int parseMoney(ByteBuffer line, int from, int to, long base) {
+        if (from == to) {
+            throw new IllegalArgumentException("invalid money at offset=" + (base + from));
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line.get(i) - '0';
+            if (digit < 0 || digit > 9 || (value = value * 10 + digit) > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid money at offset=" + (base + from));
+            }
+        }
+        return (int) value;
+    }
+
+    private int indexOf(ByteBuffer line, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (line.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 파일을 크기 기준으로 나눈 뒤 각 경계를 다음 줄의 시작으로 맞춘다
+    private long[] partitionBounds(FileChannel channel, long size) throws IOException {
+        long[] bounds = new long[partitions + 1];
+        bounds[partitions] = size;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        for (int i = 1; i < partitions; i++) {
+            long position = Math.max(bounds[i - 1], size * i / partitions);
+            bounds[i] = position == 0 ? 0 : nextLineStart(channel, position, size, buffer);
+        }
+        return bounds;
+    }
+
+    private long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        long scan = position - 1; // position 이 줄의 시작이면 그대로
+        while (scan < size) {
+            buffer.clear();
+            int read = channel.read(buffer, scan);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += read;
+        }
+        return size;
+    }
+
+    // 결과 건수가 0 인 줄은 이미 있는 회원이라 insert 되지 않은 줄
+    private void commit(Connection con, PreparedStatement pstmt, List<String> batchIds, Skipped skipped) throws SQLException {
+        int[] resultSizes = pstmt.executeBatch();
+        con.commit();
+        for (int i = 0; i < resultSizes.length; i++) {
+            if (resultSizes[i] == 0) {
+                skipped.add(batchIds.get(i));
+            }
+        }
+        batchIds.clear();
+    }
+
+    private static long await(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw new MyDbException(cause);
+            }
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Result {
+
+        private final long rows;     // 적재 대상 줄 수
+        private final long inserted;
+        private final long skipped;  // 이미 있는 회원이라 넣지 않은 줄 수
+        private final List<String> skippedSamples; // 최대 MAX_SKIPPED_SAMPLES 개
+
+        private Result(long rows, long skipped, List<String> skippedSamples) {
+            this.rows = rows;
+            this.inserted = rows - skipped;
+            this.skipped = skipped;
+            this.skippedSamples = skippedSamples;
+        }
+    }
+
+    // 여러 구간 스레드에서 모은다
+    private static final class Skipped {
+
+        private final AtomicLong count = new AtomicLong();
+        private final List<String> samples = Collections.synchronizedList(new ArrayList<>());
+
+        void add(String memberId) {
+            if (count.incrementAndGet() <= MAX_SKIPPED_SAMPLES) {
+                samples.add(memberId);
+            }
+        }
+
+        Result result(long rows) {
+            return new Result(rows, count.get(), List.copyOf(samples));
+        }
+    }
+
+    /**
+     * 구간별로 다음에 읽을 위치. 파일 크기와 구간 경계가 같을 때만 이어서 적재한다
+     * size=..., bounds=..., 구간번호=위치 형식의 텍스트 파일 (임시 파일에 쓰고 교체)
+     */
+    private static final class Checkpoint {
+
+        private final Path file;
+        private final String header;
+        private final long[] offsets;
+        private final boolean resumed;
+
+        private Checkpoint(Path file, String header, long[] offsets, boolean resumed) {
+            this.file = file;
+            this.header = header;
+            this.offsets = offsets;
+            this.resumed = resumed;
+        }
+
+        static Checkpoint load(Path file, long size, long[] bounds) throws IOException {
+            String header = "size=" + size + ",partitions=" + (bounds.length - 1);
+            long[] offsets = new long[bounds.length - 1];
+            System.arraycopy(bounds, 0, offsets, 0, offsets.length);
+
+            if (!Files.exists(file)) {
+                return new Checkpoint(file, header, offsets, false);
+            }
+            List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+            if (lines.size() != offsets.length + 1 || !lines.get(0).equals(header)) {
+                log.warn("checkpoint does not match file, start over checkpoint={}", file);
+                return new Checkpoint(file, header, offsets, false);
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                long offset = Long.parseLong(lines.get(i + 1).substring(lines.get(i + 1).indexOf('=') + 1));
+                offsets[i] = Math.max(bounds[i], Math.min(offset, bounds[i + 1]));
+            }
+            return new Checkpoint(file, header, offsets, true);
+        }
+
+        long offset(int partition) {
+            return offsets[partition];
+        }
+
+        long remaining(long[] bounds) {
+            long remaining = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                remaining += bounds[i + 1] - offsets[i];
+            }
+            return remaining;
+        }
+
+        synchronized void update(int partition, long offset) throws IOException {
+            offsets[partition] = offset;
+            List<String> lines = new ArrayList<>(offsets.length + 1);
+            lines.add(header);
+            for (int i = 0; i < offsets.length; i++) {
+                lines.add(i + "=" + offsets[i]);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.US_ASCII);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static final class Progress {
+
+        private final long totalBytes;
+        private final long remainingBytes;
+        private final AtomicLong readBytes = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final long start = System.nanoTime();
+
+        private Progress(long totalBytes, long remainingBytes) {
+            this.totalBytes = totalBytes;
+            this.remainingBytes = remainingBytes;
+        }
+
+        void read(long bytes) {
+            readBytes.addAndGet(bytes);
+        }
+
+        void done(long committedRows) {
+            rows.addAndGet(committedRows);
+        }
+
+        void log() {
+            long elapsed = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            long done = totalBytes - remainingBytes + readBytes.get();
+            log.info("import progress {}%, rows={}, {} rows/s",
+                    totalBytes == 0 ? 100 : done * 100 / totalBytes, rows.get(), rows.get() * 1000 / elapsed);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * MemberMoneyTable 을 사용하는 MemberRepository 캐시
+ * 트랜잭션 밖의 조회만 캐시에서 처리한다
+ * 트랜잭션 안에서는 커밋되지 않은 값이 캐시에 들어가지 않도록 캐시를 우회하고, 변경된 키는 트랜잭션 종료 후 한번 더 제거한다
+ * 캐시에는 조회한 값만 넣는다 (조회 전 무효화 버전을 읽고, 그 사이에 evict 가 있었으면 넣지 않는다)
+ * 변경은 값을 넣지 않고 evict 만 한다. 동시에 변경하는 쓰기들의 커밋 순서와 put 순서가 다를 수 있기 때문
+ */
+@Slf4j
+public class CachedMemberRepository implements MemberRepository {
+
+    private final MemberRepository target;
+    private final MemberMoneyTable table;
+
+    public CachedMemberRepository(MemberRepository target, MemberMoneyTable table) {
+        this.target = target;
+        this.table = table;
+    }
+
+    @Override
+    public Member save(Member member) {
+        target.save(member);
+        written(member.getMemberId());
+        return member;
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        return findByIdOptional(memberId)
+                .orElseThrow(() -> new NoSuchElementException("member not found memberId=" + memberId));
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return target.findByIdOptional(memberId);
+        }
+        long money = table.get(memberId);
+        if (money != MemberMoneyTable.MISSING) {
+            return Optional.of(new Member(memberId, (int) money));
+        }
+        long version = table.invalidationVersion(memberId);
+        Optional<Member> member = target.findByIdOptional(memberId);
+        member.ifPresent(found -> table.putIfNotInvalidated(memberId, found.getMoney(), version));
+        return member;
+    }
+
+    // 캐시에 없는 회원만 한번에 조회
+    @Override
+    public Map<String, Member> findAllById(Collection<String> memberIds) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return target.findAllById(memberIds);
+        }
+        Map<String, Member> result = new LinkedHashMap<>();
+        Map<String, Long> missing = new LinkedHashMap<>(); // memberId -> 무효화 버전
+        for (String memberId : memberIds) {
+            long money = table.get(memberId);
+            if (money != MemberMoneyTable.MISSING) {
+                result.put(memberId, new Member(memberId, (int) money));
+            } else {
+                missing.put(memberId, table.invalidationVersion(memberId));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Member> loaded = target.findAllById(missing.keySet());
+            loaded.forEach((memberId, member) -> table.putIfNotInvalidated(memberId, member.getMoney(), missing.get(memberId)));
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                && table.get(memberId) != MemberMoneyTable.MISSING) {
+            return true;
+        }
+        return target.existsById(memberId);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        target.update(memberId, money);
+        written(memberId);
+    }
+
+    @Override
+    public void delete(String memberId) {
+        target.delete(memberId);
+        written(memberId);
+    }
+
+    @Override
+    public Member saveOrUpdate(Member member) {
+        target.saveOrUpdate(member);
+        written(member.getMemberId());
+        return member;
+    }
+
+    // 차감된 경우에만 evict
+    @Override
+    public OptionalInt debitIfSufficient(String memberId, int amount) {
+        OptionalInt money = target.debitIfSufficient(memberId, amount);
+        if (money.isPresent()) {
+            written(memberId);
+        }
+        return money;
+    }
+
+    // 커밋된 뒤에 evict (트랜잭션 밖이면 이미 커밋됨)
+    private void written(String memberId) {
+        table.remove(memberId);
+        evictAfterCompletion(memberId);
+    }
+
+    // 롤백되거나 커밋 전에 다른 스레드가 옛 값을 다시 채운 경우를 대비
+    private void evictAfterCompletion(String memberId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                table.remove(memberId);
+            }
+        });
+    }
+}
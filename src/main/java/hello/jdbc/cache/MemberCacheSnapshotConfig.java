@@ -0,0 +1,64 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.event.MemberChangePublisher;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 회원 캐시 스냅샷 설정
+ * app.cache.snapshot.enabled=true 이고 MemberChangeFeed 빈이 있을 때만 동작한다
+ * (스냅샷 이후 변경을 알 수 없으면 오래된 잔액을 캐시에서 반환하게 되므로)
+ *
+ * MemberRepository 빈은 MemberMoneyTable 빈을 사용하는 CachedMemberRepository 다 (스냅샷으로 복원한 캐시를 실제 조회가 사용)
+ * MemberChangePublisher 빈이 있으면 repository 가 변경 이벤트를 발행한다 (outbox 를 쓰면 MemberChangeFeed 가 변경을 알 수 있다)
+ * MemberChangePublisher 빈이 없으면 repository 변경이 feed 에 남지 않으므로 스냅샷을 사용하지 않는다
+ * repository 밖에서 member 를 바꾸는 writer(TransferEngine, GroupCommitTransferExecutor, BalanceAdjustmentJob)는 MemberChangeOutbox 를 넘겨야 한다
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "app.cache.snapshot.enabled", havingValue = "true")
+public class MemberCacheSnapshotConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MemberMoneyTable memberMoneyTable(@Value("${app.cache.expected-members:100000}") int expectedMembers) {
+        MemberMoneyTable table = new MemberMoneyTable(expectedMembers);
+        log.info("member cache offHeapBytes={}", table.offHeapBytes());
+        return table;
+    }
+
+    @Bean
+    public MemberRepository memberRepository(DataSource dataSource, MemberMoneyTable table,
+                                             ObjectProvider<MemberChangePublisher> changePublisher) {
+        return new CachedMemberRepository(new MemberRepositoryV4_1(dataSource, changePublisher.getIfAvailable()), table);
+    }
+
+    @Bean
+    public MemberMoneySnapshot memberMoneySnapshot(@Value("${app.cache.snapshot.path:member-cache.snapshot}") Path file) {
+        return new MemberMoneySnapshot(file);
+    }
+
+    @Bean(destroyMethod = "close")
+    public MemberCacheSnapshotRunner memberCacheSnapshotRunner(MemberMoneyTable table,
+                                                               MemberMoneySnapshot snapshot,
+                                                               ObjectProvider<MemberChangeFeed> changeFeed,
+                                                               ObjectProvider<MemberChangePublisher> changePublisher,
+                                                               @Value("${app.cache.snapshot.interval:60s}") Duration interval) {
+        if (changePublisher.getIfAvailable() == null) {
+            log.warn("MemberChangePublisher not found, member changes are not recorded. cache snapshot disabled");
+            return new MemberCacheSnapshotRunner(table, snapshot, null, interval);
+        }
+        return new MemberCacheSnapshotRunner(table, snapshot, changeFeed.getIfAvailable(), interval);
+    }
+}
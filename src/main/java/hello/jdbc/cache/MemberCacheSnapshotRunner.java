@@ -0,0 +1,88 @@
+package hello.jdbc.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시작 시 캐시 스냅샷 복원, 이후 interval 마다 스냅샷 저장, 종료 시 마지막으로 한번 더 저장
+ * ApplicationRunner 라 복원이 끝난 뒤에 준비 완료(ApplicationReadyEvent)가 된다
+ * MemberChangeFeed 가 없으면 아무것도 하지 않는다
+ */
+@Slf4j
+public class MemberCacheSnapshotRunner implements ApplicationRunner, AutoCloseable {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final MemberMoneyTable table;
+    private final MemberMoneySnapshot snapshot;
+    private final MemberChangeFeed changeFeed;
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+    private volatile boolean started;
+
+    public MemberCacheSnapshotRunner(MemberMoneyTable table, MemberMoneySnapshot snapshot,
+                                     MemberChangeFeed changeFeed, Duration interval) {
+        this.table = table;
+        this.snapshot = snapshot;
+        this.changeFeed = changeFeed;
+        this.interval = interval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (changeFeed == null) {
+            log.warn("MemberChangeFeed not found, cache snapshot disabled");
+            return;
+        }
+        try {
+            if (!snapshot.restore(table, changeFeed)) {
+                log.info("cache snapshot not restored, start with empty cache");
+            }
+        } catch (Exception e) {
+            // 복원 실패로 기동을 막지는 않는다
+            table.clear();
+            log.warn("cache snapshot restore failed", e);
+        }
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::write, millis, millis, TimeUnit.MILLISECONDS);
+        started = true;
+    }
+
+    private void write() {
+        try {
+            snapshot.write(table, changeFeed);
+        } catch (Exception e) {
+            log.error("cache snapshot error", e); // 예외가 나가면 이후 스케줄이 중단되므로 여기서 처리
+        }
+    }
+
+    // 진행 중인 스케줄 저장이 끝난 뒤에 마지막 저장 (같은 임시 파일을 동시에 쓰지 않도록)
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("cache snapshot still running, skip final snapshot");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("interrupted while waiting for cache snapshot, skip final snapshot");
+            return;
+        }
+        if (started) {
+            write();
+        }
+    }
+}
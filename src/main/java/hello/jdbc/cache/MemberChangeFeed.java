@@ -0,0 +1,28 @@
+package hello.jdbc.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 회원 변경 이력
+ * 캐시 스냅샷을 복원할 때 스냅샷 이후에 바뀐 회원만 골라내기 위해 사용한다
+ */
+public interface MemberChangeFeed {
+
+    /**
+     * 바뀐 회원을 특정할 수 없는 일괄 변경 (member_id 자리에 전달된다)
+     * 이 값을 받으면 스냅샷 전체를 믿을 수 없다
+     */
+    String ALL_MEMBERS = "*";
+
+    /**
+     * 현재 위치 (high-water mark)
+     * 아직 커밋되지 않은 변경이 이 위치 이하에 남지 않도록 여유를 둔 값을 반환해야 한다
+     */
+    long currentPosition();
+
+    /**
+     * position 이후에 변경된 memberId 를 consumer 에 전달하고, 마지막으로 읽은 위치를 반환한다
+     * position 이후의 이력이 이미 정리되어 알 수 없으면 IllegalStateException
+     */
+    long changesSince(long position, Consumer<String> consumer);
+}
@@ -0,0 +1,142 @@
+package hello.jdbc.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MemberMoneyTable 스냅샷 (memory-mapped file)
+ * segment 의 slot 을 그대로 파일에 복사하고, 재시작 시 그대로 복원해서 캐시를 바로 채운다
+ * 스냅샷 이후의 변경은 MemberChangeFeed 로 찾아서 해당 회원만 캐시에서 제거한다 (다음 조회 때 DB 에서 다시 읽는다)
+ * 스냅샷 이후에 일괄 변경(MemberChangeFeed.ALL_MEMBERS)이 있었으면 스냅샷을 사용하지 않는다
+ *
+ * header (32 byte) : magic(4) + version(1) + little endian 여부(1) + padding(2) + slotsPerSegment(4) + segmentCount(4)
+ *                    + high-water mark(8) + 생성 시각 millis(8)
+ * 이후 segment 순서대로 slot 영역
+ */
+@Slf4j
+public class MemberMoneySnapshot {
+
+    private static final int MAGIC = 0x4D4D5453; // "MMTS"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private final Path file;
+
+    public MemberMoneySnapshot(Path file) {
+        this.file = file;
+    }
+
+    // 임시 파일에 쓰고 교체하므로 쓰는 도중 종료되어도 이전 스냅샷은 남는다
+    public void write(MemberMoneyTable table, MemberChangeFeed changeFeed) {
+        long start = System.currentTimeMillis();
+        long highWaterMark = changeFeed.currentPosition(); // 복사 전에 읽는다. 복사 중 변경은 복원 시 다시 반영된다
+        int slotsPerSegment = table.slotsPerSegment();
+        long segmentBytes = MemberMoneyTable.segmentBytes(slotsPerSegment);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).put(VERSION).put((byte) (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 1 : 0))
+                    .putShort((short) 0).putInt(slotsPerSegment).putInt(table.segmentCount())
+                    .putLong(highWaterMark).putLong(System.currentTimeMillis());
+
+            for (int i = 0; i < table.segmentCount(); i++) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * segmentBytes, segmentBytes);
+                table.copySegmentTo(i, region);
+                region.force();
+            }
+            header.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("cache snapshot written file={}, size={}, highWaterMark={}, {}ms",
+                file, table.size(), highWaterMark, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 스냅샷 복원 후 스냅샷 이후 변경된 회원 제거
+     * @return 복원했으면 true. 스냅샷이 없거나 사용할 수 없으면 false (캐시는 비어 있다)
+     */
+    public boolean restore(MemberMoneyTable table, MemberChangeFeed changeFeed) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        long highWaterMark;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                log.warn("invalid cache snapshot file={}", file);
+                return false;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int magic = header.getInt();
+            byte version = header.get();
+            boolean littleEndian = header.get() == 1;
+            header.getShort();
+            int slotsPerSegment = header.getInt();
+            int segmentCount = header.getInt();
+            highWaterMark = header.getLong();
+            long segmentBytes = MemberMoneyTable.segmentBytes(slotsPerSegment);
+
+            if (magic != MAGIC || version != VERSION
+                    || littleEndian != (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN)
+                    || segmentCount != table.segmentCount()
+                    || channel.size() != HEADER_SIZE + segmentCount * segmentBytes) {
+                log.warn("incompatible cache snapshot file={}", file);
+                return false;
+            }
+
+            for (int i = 0; i < segmentCount; i++) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + i * segmentBytes, segmentBytes);
+                region.order(ByteOrder.nativeOrder());
+                table.restoreSegment(i, region, slotsPerSegment);
+            }
+        } catch (IOException e) {
+            log.warn("cache snapshot restore failed file={}", file, e);
+            table.clear();
+            return false;
+        }
+
+        int restored = table.size();
+        int[] evicted = {0};
+        boolean[] allChanged = {false};
+        try {
+            changeFeed.changesSince(highWaterMark, memberId -> {
+                if (MemberChangeFeed.ALL_MEMBERS.equals(memberId)) {
+                    allChanged[0] = true;
+                } else if (table.remove(memberId)) {
+                    evicted[0]++;
+                }
+            });
+        } catch (IllegalStateException e) {
+            // 스냅샷 이후 변경을 알 수 없으면 스냅샷을 믿을 수 없다
+            log.warn("cache snapshot is too old highWaterMark={}", highWaterMark, e);
+            table.clear();
+            return false;
+        }
+        if (allChanged[0]) {
+            log.warn("members changed in bulk after cache snapshot highWaterMark={}", highWaterMark);
+            table.clear();
+            return false;
+        }
+        log.info("cache snapshot restored file={}, restored={}, evicted={}, highWaterMark={}, {}ms",
+                file, restored, evicted[0], highWaterMark, System.currentTimeMillis() - start);
+        return true;
+    }
+}
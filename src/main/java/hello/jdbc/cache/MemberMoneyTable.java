@@ -0,0 +1,369 @@
+package hello.jdbc.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * memberId -> money 전용 off-heap 해시 테이블
+ * Member 객체, String, Integer 를 entry 마다 만들지 않고 direct ByteBuffer 의 고정 크기 slot 에 직접 저장한다 (GC 대상이 아님)
+ *
+ * slot (24 byte) : [state 1][key length 1][padding 2][money 4][key 8][key 8]
+ * - 키는 16자 이하 ASCII 만 저장한다 (member_id varchar(10)). 그 외 키는 캐시하지 않는다
+ * - open addressing (linear probing), 삭제는 tombstone 으로 표시한다
+ * - 64개 segment 로 나누어 segment 단위로 락을 건다
+ * - 용량은 생성 시 고정된다. 가득 차면 put() 이 false 를 반환한다
+ * - segment 의 slot 을 그대로 복사/복원할 수 있다 (MemberMoneySnapshot)
+ * - segment 마다 무효화 버전을 둔다. remove/clear/복원 때마다 증가하고, DB 에서 읽은 값은 putIfNotInvalidated 로
+ *   읽기 시작 후 무효화가 없었을 때만 넣는다 (조회와 put 사이에 커밋된 변경의 evict 를 옛 값이 덮어쓰지 않도록)
+ */
+public class MemberMoneyTable {
+
+    public static final long MISSING = Long.MIN_VALUE; // 조회 실패
+    public static final int MAX_KEY_LENGTH = 16;
+
+    private static final int SLOT_SIZE = 24;
+    private static final int STATE = 0;
+    private static final int LENGTH = 1;
+    private static final int MONEY = 4;
+    private static final int KEY0 = 8;
+    private static final int KEY1 = 16;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    private static final byte REMOVED = 2;
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final double MAX_LOAD = 0.75;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final int slotsPerSegment;
+
+    public MemberMoneyTable(int expectedEntries) {
+        long perSegment = (long) Math.ceil(expectedEntries / (double) SEGMENT_COUNT / MAX_LOAD);
+        int slots = 16;
+        while (slots < perSegment) {
+            slots <<= 1;
+        }
+        if ((long) slots * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("expectedEntries too large: " + expectedEntries);
+        }
+        this.slotsPerSegment = slots;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(slots);
+        }
+    }
+
+    public static boolean isCacheable(String memberId) {
+        if (memberId == null || memberId.length() > MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < memberId.length(); i++) {
+            if (memberId.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return money, 없으면 MISSING
+     */
+    public long get(String memberId) {
+        if (!isCacheable(memberId)) {
+            return MISSING;
+        }
+        long k0 = pack(memberId, 0);
+        long k1 = pack(memberId, 8);
+        int length = memberId.length();
+        long hash = hash(k0, k1, length);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(hash, k0, k1, length);
+            return slot < 0 ? MISSING : segment.slots.getInt(slot + MONEY);
+        }
+    }
+
+    /**
+     * @return 저장되었으면 true. 캐시할 수 없는 키이거나 segment 가 가득 찼으면 false
+     */
+    public boolean put(String memberId, int money) {
+        if (!isCacheable(memberId)) {
+            return false;
+        }
+        long k0 = pack(memberId, 0);
+        long k1 = pack(memberId, 8);
+        int length = memberId.length();
+        long hash = hash(k0, k1, length);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            return segment.put(hash, k0, k1, length, money);
+        }
+    }
+
+    /**
+     * DB 조회 전에 읽어둔다. 캐시할 수 없는 키면 0
+     */
+    public long invalidationVersion(String memberId) {
+        if (!isCacheable(memberId)) {
+            return 0;
+        }
+        Segment segment = segmentFor(hash(pack(memberId, 0), pack(memberId, 8), memberId.length()));
+        synchronized (segment) {
+            return segment.invalidations;
+        }
+    }
+
+    /**
+     * invalidationVersion 이후 같은 segment 에 무효화가 없었을 때만 저장
+     * @return 저장되었으면 true
+     */
+    public boolean putIfNotInvalidated(String memberId, int money, long version) {
+        if (!isCacheable(memberId)) {
+            return false;
+        }
+        long k0 = pack(memberId, 0);
+        long k1 = pack(memberId, 8);
+        int length = memberId.length();
+        long hash = hash(k0, k1, length);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            return segment.invalidations == version && segment.put(hash, k0, k1, length, money);
+        }
+    }
+
+    // 없는 키여도 무효화 버전은 증가한다 (진행 중인 조회가 옛 값을 넣지 못하게)
+    public boolean remove(String memberId) {
+        if (!isCacheable(memberId)) {
+            return false;
+        }
+        long k0 = pack(memberId, 0);
+        long k1 = pack(memberId, 8);
+        int length = memberId.length();
+        long hash = hash(k0, k1, length);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.invalidations++;
+            int slot = segment.find(hash, k0, k1, length);
+            if (slot < 0) {
+                return false;
+            }
+            segment.slots.put(slot + STATE, REMOVED);
+            segment.used--;
+            segment.removed++;
+            return true;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.used;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.invalidations++;
+                segment.clear();
+            }
+        }
+    }
+
+    // off-heap 사용량 (byte)
+    public long offHeapBytes() {
+        return (long) SEGMENT_COUNT * slotsPerSegment * SLOT_SIZE;
+    }
+
+    int segmentCount() {
+        return SEGMENT_COUNT;
+    }
+
+    int slotsPerSegment() {
+        return slotsPerSegment;
+    }
+
+    static int segmentBytes(int slotsPerSegment) {
+        return slotsPerSegment * SLOT_SIZE;
+    }
+
+    // segment 의 slot 을 그대로 복사 (native byte order). 해당 segment 에만 락을 건다
+    void copySegmentTo(int index, ByteBuffer target) {
+        Segment segment = segments[index];
+        synchronized (segment) {
+            ByteBuffer source = segment.slots.duplicate();
+            source.clear();
+            target.put(source);
+        }
+    }
+
+    /**
+     * copySegmentTo 로 복사한 slot 복원
+     * slot 수가 같으면 그대로 복사하고, 다르면 사용 중인 slot 만 다시 넣는다 (segment 는 hash 상위 bit 로 정해지므로 같은 segment)
+     */
+    void restoreSegment(int index, ByteBuffer source, int sourceSlotsPerSegment) {
+        Segment segment = segments[index];
+        synchronized (segment) {
+            segment.invalidations++;
+            segment.clear();
+            if (sourceSlotsPerSegment == slotsPerSegment) {
+                segment.slots.clear();
+                segment.slots.put(source);
+                segment.recount();
+                return;
+            }
+            for (int slot = 0; slot < sourceSlotsPerSegment * SLOT_SIZE; slot += SLOT_SIZE) {
+                if (source.get(slot + STATE) != USED) {
+                    continue;
+                }
+                long k0 = source.getLong(slot + KEY0);
+                long k1 = source.getLong(slot + KEY1);
+                int length = source.get(slot + LENGTH);
+                segment.put(hash(k0, k1, length), k0, k1, length, source.getInt(slot + MONEY));
+            }
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    // 문자 8개를 long 하나로 (ASCII 1byte 씩)
+    private static long pack(String key, int from) {
+        long packed = 0;
+        int end = Math.min(key.length(), from + 8);
+        for (int i = from; i < end; i++) {
+            packed |= ((long) key.charAt(i)) << ((i - from) * 8);
+        }
+        return packed;
+    }
+
+    private static long hash(long k0, long k1, int length) {
+        long h = k0 * 0x9E3779B97F4A7C15L ^ k1 * 0xC2B2AE3D27D4EB4FL ^ length;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+
+        private final ByteBuffer slots;
+        private final int mask;
+        private final int maxLoad;
+        private int used;
+        private int removed;
+        private long invalidations; // 무효화 버전
+
+        Segment(int slotCount) {
+            this.slots = ByteBuffer.allocateDirect(slotCount * SLOT_SIZE).order(ByteOrder.nativeOrder());
+            this.mask = slotCount - 1;
+            this.maxLoad = (int) (slotCount * MAX_LOAD);
+        }
+
+        // slot 의 byte offset, 없으면 -1
+        int find(long hash, long k0, long k1, int length) {
+            int index = (int) hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                int slot = index * SLOT_SIZE;
+                byte state = slots.get(slot + STATE);
+                if (state == EMPTY) {
+                    return -1;
+                }
+                if (state == USED && matches(slot, k0, k1, length)) {
+                    return slot;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        boolean put(long hash, long k0, long k1, int length, int money) {
+            int existing = find(hash, k0, k1, length);
+            if (existing >= 0) {
+                slots.putInt(existing + MONEY, money);
+                return true;
+            }
+            if (used >= maxLoad) {
+                return false;
+            }
+            if (used + removed >= maxLoad) {
+                compact(); // tombstone 정리
+            }
+            int index = (int) hash & mask;
+            while (true) {
+                int slot = index * SLOT_SIZE;
+                byte state = slots.get(slot + STATE);
+                if (state != USED) {
+                    if (state == REMOVED) {
+                        removed--;
+                    }
+                    write(slot, k0, k1, length, money);
+                    used++;
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private boolean matches(int slot, long k0, long k1, int length) {
+            return slots.get(slot + LENGTH) == length
+                    && slots.getLong(slot + KEY0) == k0
+                    && slots.getLong(slot + KEY1) == k1;
+        }
+
+        private void write(int slot, long k0, long k1, int length, int money) {
+            slots.put(slot + LENGTH, (byte) length);
+            slots.putInt(slot + MONEY, money);
+            slots.putLong(slot + KEY0, k0);
+            slots.putLong(slot + KEY1, k1);
+            slots.put(slot + STATE, USED);
+        }
+
+        // 사용 중인 slot 만 남기고 다시 배치한다
+        private void compact() {
+            int slotCount = mask + 1;
+            ByteBuffer copy = ByteBuffer.allocate(slotCount * SLOT_SIZE).order(ByteOrder.nativeOrder());
+            slots.clear();
+            copy.put(slots);
+            clear();
+            for (int index = 0; index < slotCount; index++) {
+                int slot = index * SLOT_SIZE;
+                if (copy.get(slot + STATE) != USED) {
+                    continue;
+                }
+                long k0 = copy.getLong(slot + KEY0);
+                long k1 = copy.getLong(slot + KEY1);
+                int length = copy.get(slot + LENGTH);
+                put(hash(k0, k1, length), k0, k1, length, copy.getInt(slot + MONEY));
+            }
+        }
+
+        void recount() {
+            used = 0;
+            removed = 0;
+            for (int i = 0; i < slots.capacity(); i += SLOT_SIZE) {
+                byte state = slots.get(i + STATE);
+                if (state == USED) {
+                    used++;
+                } else if (state == REMOVED) {
+                    removed++;
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < slots.capacity(); i += SLOT_SIZE) {
+                slots.put(i + STATE, EMPTY);
+            }
+            used = 0;
+            removed = 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀 크기 자동 조절
+ * 주기적으로 HikariPoolMXBean(active/idle/대기 스레드)과 PoolMetricsTracker(대기/사용 시간)를 샘플링하고
+ * AimdPoolSizePolicy 가 정한 크기로 maximumPoolSize 를 실행 중에 변경한다
+ *
+ * Hikari 는 minimumIdle < maximumPoolSize 일 때만 유휴 커넥션을 정리한다 (minimumIdle 기본값 = maximumPoolSize)
+ * 그래서 minimumIdle 을 정책의 minSize 이하로 맞춰두고, 크기를 줄이면 idleTimeout 이 지난 유휴 커넥션부터 닫힌다
+ *
+ * 주의! MetricsTrackerFactory 는 풀 시작 전에만 등록할 수 있으므로 첫 getConnection() 전에 생성해야 한다
+ */
+@Slf4j
+public class AdaptivePoolSizer implements AutoCloseable {
+
+    private final HikariDataSource dataSource;
+    private final PoolMetricsTracker tracker = new PoolMetricsTracker();
+    private final AimdPoolSizePolicy policy;
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+
+    public AdaptivePoolSizer(HikariDataSource dataSource, AimdPoolSizePolicy policy, Duration interval) {
+        this.dataSource = dataSource;
+        this.policy = policy;
+        this.interval = interval;
+        this.dataSource.setMetricsTrackerFactory(tracker);
+        int minimumIdle = dataSource.getMinimumIdle();
+        if (minimumIdle < 0 || minimumIdle > policy.getMinSize()) {
+            this.dataSource.setMinimumIdle(policy.getMinSize()); // 설정하지 않았으면 -1 (시작 시 maximumPoolSize 로 바뀐다)
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        long millis = interval.toMillis();
+        executor.scheduleAtFixedRate(this::adjust, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    void adjust() {
+        try {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (pool == null) {
+                return; // 아직 풀이 시작되지 않음
+            }
+            PoolSample sample = new PoolSample(
+                    tracker.drainAverageWaitMillis(),
+                    tracker.drainAverageUsageMillis(),
+                    pool.getActiveConnections(),
+                    pool.getIdleConnections(),
+                    pool.getThreadsAwaitingConnection(),
+                    tracker.drainTimeouts());
+
+            HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+            int current = config.getMaximumPoolSize();
+            int next = policy.nextSize(current, sample);
+            if (next != current) {
+                if (config.getMinimumIdle() > next) {
+                    config.setMinimumIdle(next); // 줄일 때 유휴 커넥션이 정리될 수 있도록
+                }
+                config.setMaximumPoolSize(next);
+                log.info("pool size {} -> {}, minimumIdle={}, sample={}", current, next, config.getMinimumIdle(), sample);
+            }
+        } catch (Exception e) {
+            log.error("pool sizer error", e); // 예외가 나가면 이후 스케줄이 중단되므로 여기서 처리
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,55 @@
+package hello.jdbc.connection;
+
+/**
+ * AIMD(Additive Increase / Multiplicative Decrease) 커넥션 풀 크기 정책
+ * - 대기 시간이 목표를 넘고 기다리는 스레드가 있으면 increaseStep 만큼 늘린다
+ *   단, 커넥션 사용 시간이 usageCeilingMillis 를 넘으면 DB 가 포화된 것으로 보고 늘리지 않는다
+ * - 대기가 거의 없고 유휴 커넥션이 절반 이상이면 decreaseFactor 비율로 줄인다
+ * - 항상 [minSize, maxSize] 범위를 지킨다
+ */
+public class AimdPoolSizePolicy {
+
+    private static final double LOW_WAIT_RATIO = 0.1;
+
+    private final int minSize;
+    private final int maxSize;
+    private final double targetWaitMillis;
+    private final double usageCeilingMillis;
+    private final int increaseStep;
+    private final double decreaseFactor;
+
+    public AimdPoolSizePolicy(int minSize, int maxSize, double targetWaitMillis, double usageCeilingMillis,
+                              int increaseStep, double decreaseFactor) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("minSize=" + minSize + ", maxSize=" + maxSize);
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decreaseFactor=" + decreaseFactor);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetWaitMillis = targetWaitMillis;
+        this.usageCeilingMillis = usageCeilingMillis;
+        this.increaseStep = increaseStep;
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int nextSize(int currentSize, PoolSample sample) {
+        boolean starving = sample.getTimeouts() > 0
+                || (sample.getAverageWaitMillis() > targetWaitMillis && sample.getThreadsAwaitingConnection() > 0);
+        boolean saturated = sample.getAverageUsageMillis() > usageCeilingMillis;
+
+        int next = currentSize;
+        if (starving && !saturated) {
+            next = currentSize + increaseStep;
+        } else if (sample.getAverageWaitMillis() < targetWaitMillis * LOW_WAIT_RATIO
+                && sample.getIdleConnections() * 2 >= currentSize) {
+            next = (int) Math.floor(currentSize * decreaseFactor);
+        }
+        return Math.max(minSize, Math.min(maxSize, next));
+    }
+}
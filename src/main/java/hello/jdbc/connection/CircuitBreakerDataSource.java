@@ -0,0 +1,168 @@
+package hello.jdbc.connection;
+
+import hello.jdbc.repository.ex.MyCircuitOpenException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 커넥션 획득 circuit breaker
+ * 최근 windowSize 번의 getConnection() 결과 중 실패(예외) 또는 느린 호출 비율이 임계치를 넘으면 OPEN 상태가 된다
+ * - OPEN : openDuration 동안 DB 에 접속을 시도하지 않고 바로 MyCircuitOpenException
+ * - HALF_OPEN : openDuration 이 지나면 halfOpenCalls 개의 호출만 통과시켜 확인한다. 모두 성공하면 CLOSED, 하나라도 실패하면 다시 OPEN
+ * DB 가 내려갔을 때 요청마다 connect timeout 만큼 기다리며 스레드를 붙잡지 않게 된다
+ */
+@Slf4j
+public class CircuitBreakerDataSource extends DelegatingDataSource {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+    private volatile long openedAt;
+
+    // 최근 호출 결과 (count 기반 rolling window)
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int failures;
+    private int slowCalls;
+
+    public CircuitBreakerDataSource(DataSource targetDataSource, int windowSize, int minimumCalls,
+                                    double failureRateThreshold, Duration slowCallDuration,
+                                    double slowCallRateThreshold, Duration openDuration, int halfOpenCalls) {
+        super(targetDataSource);
+        this.window = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermission();
+        long start = System.nanoTime();
+        try {
+            Connection con = super.getConnection();
+            onResult(System.nanoTime() - start, false);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            onResult(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquirePermission();
+        long start = System.nanoTime();
+        try {
+            Connection con = super.getConnection(username, password);
+            onResult(System.nanoTime() - start, false);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            onResult(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    private void acquirePermission() {
+        if (state.get() == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                throw new MyCircuitOpenException("circuit open");
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                halfOpenSuccesses.set(0);
+                halfOpenPermits.set(halfOpenCalls);
+                log.info("circuit half-open");
+            }
+        }
+        if (state.get() == State.HALF_OPEN && halfOpenPermits.getAndDecrement() <= 0) {
+            throw new MyCircuitOpenException("circuit half-open, probe in progress");
+        }
+    }
+
+    private void onResult(long elapsedNanos, boolean failed) {
+        if (state.get() == State.HALF_OPEN) {
+            if (failed || elapsedNanos >= slowCallNanos) {
+                open();
+            } else if (halfOpenSuccesses.incrementAndGet() >= halfOpenCalls
+                    && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                resetWindow();
+                log.info("circuit closed");
+            }
+            return;
+        }
+        if (record(failed ? FAILURE : elapsedNanos >= slowCallNanos ? SLOW : SUCCESS)) {
+            open();
+        }
+    }
+
+    // 결과를 기록하고 OPEN 으로 바뀌어야 하면 true
+    private synchronized boolean record(byte outcome) {
+        if (windowCount == window.length) {
+            byte evicted = window[windowIndex];
+            if (evicted == FAILURE) {
+                failures--;
+            } else if (evicted == SLOW) {
+                slowCalls--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+
+        if (windowCount < minimumCalls) {
+            return false;
+        }
+        return (double) failures / windowCount >= failureRateThreshold
+                || (double) slowCalls / windowCount >= slowCallRateThreshold;
+    }
+
+    private synchronized void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        State previous = state.getAndSet(State.OPEN);
+        if (previous != State.OPEN) {
+            resetWindow();
+            log.warn("circuit open for {}ms", openNanos / 1_000_000);
+        }
+    }
+}
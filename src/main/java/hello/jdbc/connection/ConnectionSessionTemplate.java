@@ -0,0 +1,54 @@
+package hello.jdbc.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.function.Supplier;
+
+/**
+ * 커넥션 세션 : 트랜잭션 없이 하나의 커넥션을 작업 단위 동안 유지한다
+ * 트랜잭션 밖에서는 repository 호출마다 커넥션을 얻고 반납하는데,
+ * 세션 안에서는 커넥션을 트랜잭션 동기화 매니저에 보관해 DataSourceUtils 가 같은 커넥션을 재사용한다
+ *
+ * - auto commit 그대로. 각 SQL 은 바로 커밋된다 (원자성 X)
+ * - 이미 트랜잭션(또는 세션) 안이면 그 커넥션을 그대로 사용
+ * - 세션 안에서 시작한 트랜잭션은 세션의 커넥션을 사용하고, 끝나면 auto commit 으로 되돌린다
+ */
+@Slf4j
+public class ConnectionSessionTemplate {
+
+    private final DataSource dataSource;
+
+    public ConnectionSessionTemplate(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        if (TransactionSynchronizationManager.hasResource(dataSource)) {
+            return action.get(); // 바깥 트랜잭션/세션의 커넥션 사용
+        }
+
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        ConnectionHolder holder = new ConnectionHolder(con);
+        TransactionSynchronizationManager.bindResource(dataSource, holder);
+        log.debug("open connection session connection={}", con);
+        try {
+            return action.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(dataSource);
+            DataSourceUtils.releaseConnection(con, dataSource);
+            log.debug("close connection session connection={}", con);
+        }
+    }
+
+    public void executeWithoutResult(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
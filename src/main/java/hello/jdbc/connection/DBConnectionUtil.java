@@ -3,8 +3,8 @@ package hello.jdbc.connection;
 import lombok.extern.slf4j.Slf4j;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
 
 import static hello.jdbc.connection.ConnectionConst.*;
 
@@ -12,9 +12,10 @@ import static hello.jdbc.connection.ConnectionConst.*;
 public class DBConnectionUtil {
 
     // JDBC 표준 인터페스가 제공하는 Connection
+    // 매번 DriverManager 로 TCP 연결 + 인증을 하지 않도록 SimpleConnectionPool 에서 가져온다. close() 하면 풀에 반납
     public static Connection getConnection(){
         try{
-            Connection connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            Connection connection = PoolHolder.POOL.getConnection();
             log.info("get connection={}, class={}", connection, connection.getClass());
             return connection;
 
@@ -22,4 +23,10 @@ public class DBConnectionUtil {
             throw new IllegalStateException(e); // RuntimeException 으로 바꿔서 threw. 예외에서 한번 더 설명
         }
     }
+
+    // 처음 사용할 때 풀 생성
+    private static class PoolHolder {
+        private static final SimpleConnectionPool POOL = new SimpleConnectionPool(URL, USERNAME, PASSWORD,
+                10, 0, Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ofMinutes(30));
+    }
 }
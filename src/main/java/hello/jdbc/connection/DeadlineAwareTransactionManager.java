@@ -0,0 +1,41 @@
+package hello.jdbc.connection;
+
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.support.Deadline;
+import hello.jdbc.support.DeadlineContext;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+
+/**
+ * DeadlineContext 의 남은 시간을 트랜잭션 timeout 으로 사용하는 트랜잭션 매니저
+ * 트랜잭션 timeout 은 DataSourceUtils.applyTransactionTimeout 을 통해 트랜잭션 안의 모든 statement 에 적용된다
+ * 이미 마감 시각이 지났으면 커넥션을 획득하지 않고 MyDeadlineExceededException
+ */
+public class DeadlineAwareTransactionManager extends DataSourceTransactionManager {
+
+    public DeadlineAwareTransactionManager(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        Deadline deadline = DeadlineContext.current();
+        if (deadline != null && deadline.isExpired()) {
+            throw new MyDeadlineExceededException("deadline exceeded before transaction begin");
+        }
+        super.doBegin(transaction, definition);
+    }
+
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        int timeout = super.determineTimeout(definition);
+        Deadline deadline = DeadlineContext.current();
+        if (deadline == null) {
+            return timeout;
+        }
+        int remaining = DeadlineContext.remainingSeconds(deadline);
+        return timeout == TransactionDefinition.TIMEOUT_DEFAULT ? remaining : Math.min(timeout, remaining);
+    }
+}
@@ -0,0 +1,61 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HikariCP 커넥션 대기 시간 / 사용 시간 수집
+ * HikariPoolMXBean 은 대기 시간을 제공하지 않으므로 MetricsTrackerFactory 로 직접 모은다
+ * 풀이 시작되기 전에 HikariDataSource.setMetricsTrackerFactory() 로 등록해야 한다
+ */
+public class PoolMetricsTracker implements MetricsTrackerFactory, IMetricsTracker {
+
+    private final LongAdder acquiredNanos = new LongAdder();
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquiredNanos.add(elapsedAcquiredNanos);
+        acquiredCount.increment();
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillis.add(elapsedBorrowedMillis);
+        usageCount.increment();
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    // 마지막 호출 이후 구간의 평균 대기 시간 (ms)
+    public double drainAverageWaitMillis() {
+        long count = acquiredCount.sumThenReset();
+        long nanos = acquiredNanos.sumThenReset();
+        return count == 0 ? 0 : nanos / 1_000_000.0 / count;
+    }
+
+    // 마지막 호출 이후 구간의 평균 커넥션 사용(트랜잭션) 시간 (ms)
+    public double drainAverageUsageMillis() {
+        long count = usageCount.sumThenReset();
+        long millis = usageMillis.sumThenReset();
+        return count == 0 ? 0 : (double) millis / count;
+    }
+
+    public long drainTimeouts() {
+        return timeouts.sumThenReset();
+    }
+}
@@ -0,0 +1,17 @@
+package hello.jdbc.connection;
+
+import lombok.Data;
+
+/**
+ * 커넥션 풀 상태 샘플 (AdaptivePoolSizer 가 주기적으로 수집)
+ */
+@Data
+public class PoolSample {
+
+    private final double averageWaitMillis;
+    private final double averageUsageMillis;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int threadsAwaitingConnection;
+    private final long timeouts;
+}
@@ -0,0 +1,396 @@
+package hello.jdbc.connection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DriverManager 기반의 작은 커넥션 풀
+ * - 커넥션 목록(bag)은 CopyOnWriteArrayList, 각 커넥션의 사용 여부는 CAS 로 바꾼다 (락 없음)
+ * - 빈 커넥션이 없으면 대기하고, 반납되는 커넥션을 SynchronousQueue 로 대기 스레드에 직접 넘긴다
+ * - 획득 시 검증(isValid), maxLifetime 초과 커넥션 폐기, housekeeper 가 idle 커넥션을 정리
+ *
+ * close() 하면 물리 커넥션을 닫지 않고 풀에 반납하는 프록시 커넥션을 반환한다
+ * 반납 시 autoCommit, readOnly, 격리 수준을 생성 시점 값으로 되돌린다 (바꾼 경우에만)
+ * 주의! 반납 시 닫지 않은 Statement 는 정리하지 않는다
+ */
+@Slf4j
+public class SimpleConnectionPool extends AbstractDataSource implements AutoCloseable {
+
+    private static final int NOT_IN_USE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = -1;
+
+    // 최근에 사용된 커넥션은 검증(isValid) 생략
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    private static final long SCAN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maximumPoolSize;
+    private final int minimumIdle;
+    private final long connectionTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+
+    private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+    private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<>(true);
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public SimpleConnectionPool(String url, String username, String password,
+                                int maximumPoolSize, int minimumIdle, Duration connectionTimeout,
+                                Duration idleTimeout, Duration maxLifetime) {
+        if (maximumPoolSize < 1 || minimumIdle < 0 || minimumIdle > maximumPoolSize) {
+            throw new IllegalArgumentException("maximumPoolSize=" + maximumPoolSize + ", minimumIdle=" + minimumIdle);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maximumPoolSize = maximumPoolSize;
+        this.minimumIdle = minimumIdle;
+        this.connectionTimeoutNanos = connectionTimeout.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxLifetimeNanos = maxLifetime.toNanos();
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simple-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkOpen();
+        long deadline = System.nanoTime() + connectionTimeoutNanos;
+        do {
+            PoolEntry entry = borrow(deadline);
+            if (entry == null) {
+                break;
+            }
+            if (isAlive(entry)) {
+                entry.lastAccess = System.nanoTime();
+                return entry.proxy();
+            }
+            retire(entry); // 끊어졌거나 수명이 다한 커넥션 -> 다시 시도
+        } while (System.nanoTime() - deadline < 0);
+
+        throw new SQLTransientConnectionException("connection is not available, request timed out after "
+                + TimeUnit.NANOSECONDS.toMillis(connectionTimeoutNanos) + "ms (total=" + getTotalConnections()
+                + ", waiting=" + getThreadsAwaitingConnection() + ")");
+    }
+
+    // 다른 계정의 커넥션은 풀에 넣지 않는다 (풀을 거치지 않는 물리 커넥션, 사용 후 close 하면 닫힌다)
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        checkOpen();
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        int idle = 0;
+        for (PoolEntry entry : entries) {
+            if (entry.state.get() == NOT_IN_USE) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return waiters.get();
+    }
+
+    // 풀 종료 : 사용 중이 아닌 커넥션은 바로 닫고, 사용 중인 커넥션은 반납될 때 닫는다
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PoolEntry entry : entries) {
+            if (entry.state.compareAndSet(NOT_IN_USE, REMOVED)) {
+                retire(entry);
+            }
+        }
+    }
+
+    private PoolEntry borrow(long deadline) throws SQLException {
+        PoolEntry entry = scan();
+        if (entry != null) {
+            return entry;
+        }
+        entry = tryCreate();
+        if (entry != null) {
+            return entry;
+        }
+
+        waiters.incrementAndGet();
+        try {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                checkOpen(); // 기다리는 중에 풀이 닫히면 timeout 까지 기다리지 않는다
+                // 반납되는 커넥션을 직접 넘겨받거나, 잠깐 기다린 뒤 다시 찾아본다
+                PoolEntry handed = handoff.poll(Math.min(remaining, SCAN_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+                if (handed != null && handed.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                    return handed;
+                }
+                entry = scan();
+                if (entry == null) {
+                    entry = tryCreate(); // 폐기된 커넥션 자리가 생겼을 수 있다
+                }
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private PoolEntry scan() {
+        for (PoolEntry entry : entries) {
+            if (entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // maximumPoolSize 를 넘지 않는 경우에만 새 커넥션 생성 (IN_USE 상태로 반환)
+    private PoolEntry tryCreate() throws SQLException {
+        checkOpen();
+        int total;
+        while ((total = totalConnections.get()) < maximumPoolSize) {
+            if (totalConnections.compareAndSet(total, total + 1)) {
+                try {
+                    Connection connection = DriverManager.getConnection(url, username, password);
+                    PoolEntry entry;
+                    try {
+                        entry = new PoolEntry(connection);
+                    } catch (SQLException e) {
+                        JdbcUtils.closeConnection(connection);
+                        throw e;
+                    }
+                    entries.add(entry);
+                    if (closed) {
+                        // close() 가 entries 를 정리한 뒤에 추가됐을 수 있다 -> 남기지 않는다 (totalConnections 는 아래 catch 에서)
+                        entry.state.set(REMOVED);
+                        entries.remove(entry);
+                        JdbcUtils.closeConnection(connection);
+                        throw new SQLException("pool is closed");
+                    }
+                    log.debug("new connection={}, total={}", connection, total + 1);
+                    return entry;
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("pool is closed");
+        }
+    }
+
+    private boolean isAlive(PoolEntry entry) {
+        long now = System.nanoTime();
+        if (entry.broken || now - entry.createdAt > maxLifetimeNanos) {
+            return false;
+        }
+        if (now - entry.lastAccess < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            log.warn("connection validation failed connection={}", entry.connection, e);
+            return false;
+        }
+    }
+
+    // 반납 : 트랜잭션 상태를 되돌리고 대기 스레드가 있으면 바로 넘긴다
+    private void release(PoolEntry entry) {
+        if (closed || entry.broken || System.nanoTime() - entry.createdAt > maxLifetimeNanos) {
+            retire(entry);
+            return;
+        }
+        try {
+            if (!entry.connection.getAutoCommit()) {
+                entry.connection.rollback();
+                entry.connection.setAutoCommit(true);
+            }
+            if (entry.readOnlyDirty) {
+                entry.connection.setReadOnly(entry.defaultReadOnly);
+                entry.readOnlyDirty = false;
+            }
+            if (entry.isolationDirty) {
+                entry.connection.setTransactionIsolation(entry.defaultIsolation);
+                entry.isolationDirty = false;
+            }
+        } catch (SQLException e) {
+            log.warn("connection reset failed connection={}", entry.connection, e);
+            retire(entry);
+            return;
+        }
+        entry.lastAccess = System.nanoTime();
+        entry.state.set(NOT_IN_USE);
+        if (waiters.get() > 0) {
+            handoff.offer(entry); // 받을 스레드가 없으면 bag 에서 다시 찾게 된다
+        }
+    }
+
+    private void retire(PoolEntry entry) {
+        entry.state.set(REMOVED);
+        if (entries.remove(entry)) {
+            totalConnections.decrementAndGet();
+        }
+        JdbcUtils.closeConnection(entry.connection);
+    }
+
+    // idle/수명 초과 커넥션 정리 후 minimumIdle 만큼 채운다
+    void housekeep() {
+        long now = System.nanoTime();
+        for (PoolEntry entry : entries) {
+            boolean expired = now - entry.createdAt > maxLifetimeNanos;
+            boolean idleTooLong = now - entry.lastAccess > idleTimeoutNanos && totalConnections.get() > minimumIdle;
+            if ((expired || idleTooLong) && entry.state.compareAndSet(NOT_IN_USE, REMOVED)) {
+                log.debug("evict connection={}, expired={}", entry.connection, expired);
+                retire(entry);
+            }
+        }
+
+        try {
+            while (!closed && totalConnections.get() < minimumIdle) {
+                PoolEntry entry = tryCreate();
+                if (entry == null) {
+                    break;
+                }
+                entry.state.set(NOT_IN_USE);
+            }
+        } catch (SQLException e) {
+            log.warn("fill pool failed", e);
+        }
+    }
+
+    private final class PoolEntry {
+
+        private final Connection connection;
+        private final long createdAt = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(IN_USE);
+        private volatile long lastAccess = createdAt;
+        private volatile boolean broken;
+
+        // 생성 시점 값. 사용 중에 바뀌었으면(dirty) 반납 시 되돌린다
+        private final boolean defaultReadOnly;
+        private final int defaultIsolation;
+        private volatile boolean readOnlyDirty;
+        private volatile boolean isolationDirty;
+
+        private PoolEntry(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.defaultReadOnly = connection.isReadOnly();
+            this.defaultIsolation = connection.getTransactionIsolation();
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new PooledConnectionHandler(this));
+        }
+    }
+
+    // close() 를 풀 반납으로 바꾸는 프록시. 반납 후에는 사용할 수 없다
+    private final class PooledConnectionHandler implements InvocationHandler {
+
+        private final PoolEntry entry;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private PooledConnectionHandler(PoolEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || entry.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + entry.connection + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(entry.connection)) {
+                        return entry.connection;
+                    }
+                    break;
+                case "setReadOnly":
+                    entry.readOnlyDirty = true;
+                    break;
+                case "setTransactionIsolation":
+                    entry.isolationDirty = true;
+                    break;
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("connection is closed");
+            }
+            try {
+                return method.invoke(entry.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    entry.broken = true; // 반납 시 폐기
+                }
+                throw cause;
+            }
+        }
+
+        // SQLState 08xxx : 연결 오류
+        private boolean isFatal(SQLException e) {
+            String sqlState = e.getSQLState();
+            return sqlState != null && sqlState.startsWith("08");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package hello.jdbc.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 커밋된 이벤트를 크기 제한이 있는 큐에 넣고, 별도 스레드가 maxBatchSize 단위로 subscriber 에 전달한다
+ * 큐가 가득 차면 커밋한 스레드가 offerTimeout 까지 기다린다 (back-pressure). 그래도 자리가 없으면 버리고 dropped 를 센다
+ * 버려진 이벤트도 outbox 를 함께 사용하면 OutboxMemberChangeFeed 로 다시 읽을 수 있다
+ */
+@Slf4j
+public class BatchingMemberChangePublisher implements MemberChangePublisher, AutoCloseable {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final Consumer<List<MemberChanged>> subscriber;
+    private final BlockingQueue<MemberChanged> queue;
+    private final int maxBatchSize;
+    private final long offerTimeoutNanos;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running;
+
+    public BatchingMemberChangePublisher(Consumer<List<MemberChanged>> subscriber, int capacity,
+                                         int maxBatchSize, Duration offerTimeout) {
+        this.subscriber = subscriber;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.worker = new Thread(this::run, "member-change-publisher");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+    }
+
+    @Override
+    public void afterCommit(List<MemberChanged> events) {
+        for (MemberChanged event : events) {
+            try {
+                if (!queue.offer(event, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    dropped.increment();
+                    log.warn("member change queue is full, event dropped memberId={}", event.getMemberId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment();
+                return;
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // 남은 이벤트를 모두 전달한 뒤 종료
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.join();
+    }
+
+    private void run() {
+        List<MemberChanged> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                MemberChanged first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                subscriber.accept(List.copyOf(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("member change subscriber error size={}", batch.size(), e); // 스레드가 종료되지 않도록 여기서 처리
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package hello.jdbc.event;
+
+import hello.jdbc.cache.MemberChangeFeed;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.support.DeadlineContext;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 회원 변경 이벤트 outbox 테이블
+ * 회원 변경과 같은 트랜잭션에서 기록되므로, 커밋된 변경은 이벤트도 반드시 남는다
+ *
+ * 위치(commit_seq) : 커밋된 이벤트에만 assignPositions() 가 순서대로 부여한다
+ * event_id(auto_increment) 는 커밋 전에 할당되므로 위치로 쓰면 늦게 커밋된 이벤트가 이미 넘겨준 위치 아래에 생길 수 있다
+ * 부여는 잠금 row 로 직렬화되고, 그 트랜잭션에서 보이는(= 커밋된) 이벤트에만 주므로 나중에 커밋된 이벤트는 항상 더 큰 위치를 받는다
+ * 위치를 부여한 시각(positioned_at)도 함께 남긴다 (OutboxMemberChangeFeed 가 최근 위치를 여유로 남길 때 사용)
+ *
+ * repository 를 거치지 않고 member 를 직접 변경하는 writer 는 자기 커넥션으로 append(con, ...) 를 호출해 같은 트랜잭션에 기록한다
+ * 어떤 회원이 바뀌었는지 기록하지 않는 일괄 변경은 appendAllMembersChanged 로 MemberChangeFeed.ALL_MEMBERS 를 기록한다
+ *
+ * create table member_change_outbox (
+ *     event_id bigint auto_increment primary key,
+ *     member_id varchar(10) not null,
+ *     old_money integer,
+ *     new_money integer,
+ *     transaction_id varchar(36) not null,
+ *     commit_seq bigint,  -- null 이면 아직 위치 부여 전
+ *     positioned_at timestamp,
+ *     created_at timestamp default current_timestamp not null
+ * );
+ * create index idx_member_change_outbox_seq on member_change_outbox(commit_seq);
+ * create sequence member_change_seq;
+ * create table member_change_sequencer (
+ *     id integer primary key,
+ *     last_seq bigint not null
+ * );
+ * insert into member_change_sequencer values (1, 0);
+ */
+@Slf4j
+public class MemberChangeOutbox {
+
+    private final DataSource dataSource;
+
+    public MemberChangeOutbox(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    private static final String APPEND_SQL =
+            "insert into member_change_outbox(member_id, old_money, new_money, transaction_id) values (?, ?, ?, ?)";
+
+    public void append(List<MemberChanged> events) {
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(APPEND_SQL);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            addBatch(pstmt, events);
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    // 호출한 쪽 커넥션(트랜잭션)에 기록한다. 커밋/롤백은 호출한 쪽에서
+    public void append(Connection con, List<MemberChanged> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = con.prepareStatement(APPEND_SQL)) {
+            addBatch(pstmt, events);
+            pstmt.executeBatch();
+        }
+    }
+
+    // 바뀐 회원을 특정할 수 없는 일괄 변경. 이 위치 이전의 캐시 스냅샷은 사용할 수 없게 된다
+    public void appendAllMembersChanged(Connection con, String transactionId) throws SQLException {
+        append(con, List.of(new MemberChanged(MemberChangeFeed.ALL_MEMBERS, null, null, transactionId)));
+    }
+
+    // afterPosition 이후 이벤트를 위치 순서로 최대 limit 건 (위치가 부여된 이벤트만)
+    public List<Entry> findSince(long afterPosition, int limit) {
+        String sql = "select event_id, commit_seq, member_id, old_money, new_money, transaction_id from member_change_outbox" +
+                " where commit_seq > ? order by commit_seq limit ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setLong(1, afterPosition);
+            pstmt.setInt(2, limit);
+
+            rs = pstmt.executeQuery();
+            List<Entry> entries = new ArrayList<>();
+            while (rs.next()) {
+                MemberChanged event = new MemberChanged(rs.getString("member_id"),
+                        (Integer) rs.getObject("old_money"), (Integer) rs.getObject("new_money"),
+                        rs.getString("transaction_id"));
+                entries.add(new Entry(rs.getLong("event_id"), rs.getLong("commit_seq"), event));
+            }
+            return entries;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    /**
+     * 커밋된 이벤트에 위치를 부여하고 마지막 위치(high-water mark)를 반환
+     * 반환한 위치 이하에는 이후에 커밋되는 이벤트가 생기지 않는다
+     * 호출한 쪽 트랜잭션과 관계없이 별도 커넥션의 짧은 트랜잭션으로 실행한다
+     */
+    public long assignPositions() {
+        String lockSql = "select last_seq from member_change_sequencer where id = 1 for update";
+        String assignSql = "update member_change_outbox set commit_seq = next value for member_change_seq," +
+                " positioned_at = current_timestamp where commit_seq is null";
+        String lastSql = "select coalesce(max(commit_seq), 0) from member_change_outbox where commit_seq > ?";
+        String saveSql = "update member_change_sequencer set last_seq = ? where id = 1";
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                long last;
+                try (PreparedStatement pstmt = con.prepareStatement(lockSql); ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("member_change_sequencer row not found");
+                    }
+                    last = rs.getLong(1);
+                }
+                try (PreparedStatement pstmt = con.prepareStatement(assignSql)) {
+                    if (pstmt.executeUpdate() > 0) {
+                        try (PreparedStatement max = con.prepareStatement(lastSql)) {
+                            max.setLong(1, last);
+                            try (ResultSet rs = max.executeQuery()) {
+                                rs.next();
+                                last = Math.max(last, rs.getLong(1));
+                            }
+                        }
+                        try (PreparedStatement save = con.prepareStatement(saveSql)) {
+                            save.setLong(1, last);
+                            save.executeUpdate();
+                        }
+                    }
+                }
+                con.commit();
+                return last;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // 남아 있는 가장 작은 위치. 없으면 0
+    public long findOldestPosition() {
+        return queryForLong("select coalesce(min(commit_seq), 0) from member_change_outbox where commit_seq > ?", 0);
+    }
+
+    // DB 시각 기준 최근 within 안에 위치를 받은 이벤트 중 가장 작은 위치. 없으면 0
+    public long findOldestPositionWithin(Duration within) {
+        return queryForLong("select coalesce(min(commit_seq), 0) from member_change_outbox" +
+                " where positioned_at > dateadd('MILLISECOND', ?, current_timestamp)", -within.toMillis());
+    }
+
+    // 이미 처리된 이벤트 정리 : 위치가 beforePosition 보다 작은 이벤트 삭제
+    public int purgeBefore(long beforePosition) {
+        String sql = "delete from member_change_outbox where commit_seq < ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setLong(1, beforePosition);
+            int resultSize = pstmt.executeUpdate();
+            log.info("outbox purge before={}, resultSize={}", beforePosition, resultSize);
+            return resultSize;
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    private long queryForLong(String sql, long parameter) {
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setLong(1, parameter);
+
+            rs = pstmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    private void addBatch(PreparedStatement pstmt, List<MemberChanged> events) throws SQLException {
+        for (MemberChanged event : events) {
+            pstmt.setString(1, event.getMemberId());
+            setInteger(pstmt, 2, event.getOldMoney());
+            setInteger(pstmt, 3, event.getNewMoney());
+            pstmt.setString(4, event.getTransactionId());
+            pstmt.addBatch();
+        }
+    }
+
+    private void setInteger(PreparedStatement pstmt, int index, Integer value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, value);
+        }
+    }
+
+    private void close(Connection con, Statement stmt, ResultSet rs) {
+        JdbcUtils.closeResultSet(rs);
+        JdbcUtils.closeStatement(stmt);
+        DataSourceUtils.releaseConnection(con, dataSource);
+    }
+
+    private Connection getConnection() {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        log.info("get connection={}, class={}", con, con.getClass());
+        return con;
+    }
+
+    @Data
+    public static class Entry {
+        private final long eventId;
+        private final long position; // commit_seq
+        private final MemberChanged event;
+    }
+}
@@ -0,0 +1,17 @@
+package hello.jdbc.event;
+
+import java.util.List;
+
+/**
+ * 회원 변경 이벤트 발행
+ * 트랜잭션 안의 변경은 트랜잭션 단위로 모아서 전달한다. 트랜잭션 밖의 변경은 SQL 실행 직후 바로 전달한다
+ */
+public interface MemberChangePublisher {
+
+    // 커밋 직전 (같은 트랜잭션, 같은 커넥션). 예외가 나면 트랜잭션이 롤백된다
+    default void beforeCommit(List<MemberChanged> events) {
+    }
+
+    // 커밋된 후에만 호출. 예외를 던져도 커밋은 되돌릴 수 없으므로 빠르게 반환해야 한다
+    void afterCommit(List<MemberChanged> events);
+}
@@ -0,0 +1,17 @@
+package hello.jdbc.event;
+
+import lombok.Data;
+
+/**
+ * 회원 변경 이벤트
+ * 등록이면 oldMoney 가 null, 삭제면 newMoney 가 null
+ * 변경 전 금액을 모르면(같은 트랜잭션에서 조회하지 않은 회원) oldMoney 는 null
+ */
+@Data
+public class MemberChanged {
+
+    private final String memberId;
+    private final Integer oldMoney;
+    private final Integer newMoney;
+    private final String transactionId; // 같은 트랜잭션에서 발생한 이벤트는 같은 값
+}
@@ -0,0 +1,64 @@
+package hello.jdbc.event;
+
+import hello.jdbc.cache.MemberChangeFeed;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * outbox 테이블 기반 MemberChangeFeed (위치 = 커밋 후 부여한 commit_seq, MemberChangeOutbox.assignPositions)
+ * 위치 이후 이벤트가 이미 정리(purge)되었으면 IllegalStateException
+ *
+ * currentPosition() 은 최근 margin 안에 위치를 받은 이벤트보다 앞의 위치를 반환한다
+ * DB 커밋 후 캐시 반영(afterCommit)까지의 틈에 스냅샷을 복사하면 그 회원의 이전 잔액이 스냅샷에 남을 수 있으므로,
+ * 최근 변경은 스냅샷 이후 변경으로 다시 읽어 캐시에서 제거되도록 한다 (margin 은 커밋~캐시 반영 시간보다 충분히 길게)
+ */
+public class OutboxMemberChangeFeed implements MemberChangeFeed {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Duration DEFAULT_MARGIN = Duration.ofSeconds(5);
+
+    private final MemberChangeOutbox outbox;
+    private final Duration margin;
+
+    public OutboxMemberChangeFeed(MemberChangeOutbox outbox) {
+        this(outbox, DEFAULT_MARGIN);
+    }
+
+    public OutboxMemberChangeFeed(MemberChangeOutbox outbox, Duration margin) {
+        this.outbox = outbox;
+        this.margin = margin;
+    }
+
+    @Override
+    public long currentPosition() {
+        long last = outbox.assignPositions();
+        if (margin.isZero()) {
+            return last;
+        }
+        long recent = outbox.findOldestPositionWithin(margin);
+        return recent == 0 ? last : Math.min(last, recent - 1);
+    }
+
+    // 그 사이 커밋된 이벤트에도 위치를 부여한 뒤에 읽는다 (늦게 커밋된 이벤트는 position 보다 큰 위치를 받는다)
+    @Override
+    public long changesSince(long position, Consumer<String> consumer) {
+        outbox.assignPositions();
+        long oldest = outbox.findOldestPosition();
+        if (oldest > position + 1) {
+            throw new IllegalStateException("outbox purged after position=" + position + ", oldest=" + oldest);
+        }
+        long last = position;
+        List<MemberChangeOutbox.Entry> page;
+        do {
+            page = outbox.findSince(last, PAGE_SIZE);
+            for (MemberChangeOutbox.Entry entry : page) {
+                consumer.accept(entry.getEvent().getMemberId());
+                last = entry.getPosition();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return last;
+    }
+}
@@ -0,0 +1,28 @@
+package hello.jdbc.event;
+
+import java.util.List;
+
+/**
+ * 커밋 직전에 이벤트를 outbox 테이블에 기록한 뒤, 커밋되면 delegate 로 전달한다
+ */
+public class OutboxMemberChangePublisher implements MemberChangePublisher {
+
+    private final MemberChangeOutbox outbox;
+    private final MemberChangePublisher delegate;
+
+    public OutboxMemberChangePublisher(MemberChangeOutbox outbox, MemberChangePublisher delegate) {
+        this.outbox = outbox;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void beforeCommit(List<MemberChanged> events) {
+        outbox.append(events);
+        delegate.beforeCommit(events);
+    }
+
+    @Override
+    public void afterCommit(List<MemberChanged> events) {
+        delegate.afterCommit(events);
+    }
+}
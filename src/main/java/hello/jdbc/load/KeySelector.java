@@ -0,0 +1,58 @@
+package hello.jdbc.load;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 부하 테스트에서 사용할 회원 번호(0 ~ n-1) 선택 분포
+ */
+public interface KeySelector {
+
+    int next(Random random);
+
+    static KeySelector of(String distribution, int n, double zipfExponent,
+                          double hotFraction, double hotProbability) {
+        switch (distribution) {
+            case "uniform":
+                return uniform(n);
+            case "zipf":
+                return zipf(n, zipfExponent);
+            case "hotspot":
+                return hotspot(n, hotFraction, hotProbability);
+            default:
+                throw new IllegalArgumentException("unknown distribution=" + distribution);
+        }
+    }
+
+    static KeySelector uniform(int n) {
+        return random -> random.nextInt(n);
+    }
+
+    // 순위 k 의 선택 확률이 1/k^s 에 비례. 누적 분포를 미리 계산해두고 이진 탐색
+    static KeySelector zipf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return random -> {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(n - 1, index >= 0 ? index : -index - 1);
+        };
+    }
+
+    // 앞쪽 hotFraction 비율의 회원이 hotProbability 확률로 선택된다
+    static KeySelector hotspot(int n, double hotFraction, double hotProbability) {
+        int hotCount = Math.max(1, Math.min(n, (int) (n * hotFraction)));
+        return random -> {
+            if (hotCount == n || random.nextDouble() < hotProbability) {
+                return random.nextInt(hotCount);
+            }
+            return hotCount + random.nextInt(n - hotCount);
+        };
+    }
+}
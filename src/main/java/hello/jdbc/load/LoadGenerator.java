@@ -0,0 +1,313 @@
+package hello.jdbc.load;
+
+import ch.qos.logback.classic.Level;
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.connection.ConnectionConst;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MemberServiceV4 부하 테스트
+ * 1. 회원(ld0 ~ ld{members-1}) 을 같은 금액으로 생성
+ * 2. threads 개의 스레드가 duration 동안 이체(accountTransfer)/조회(findById) 를 섞어서 실행
+ * 3. reportInterval 마다 처리량, 응답 시간 percentile 출력
+ * 4. 끝나면 회원 잔액 합계가 처음과 같은지 확인 (다르면 exit code 1)
+ *
+ * rate 를 지정하면 요청을 정해진 간격으로 보내고, 응답 시간은 원래 보내야 했던 시각부터 잰다 (coordinated omission 보정)
+ *
+ * ./gradlew loadTest -PloadArgs="threads=16 distribution=zipf duration=60"
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final String MEMBER_PREFIX = "ld";
+
+    private final LoadConfig config;
+    private final DataSource dataSource;
+    private final MemberRepository memberRepository;
+    private final MemberServiceV4 memberService;
+    private final KeySelector keySelector;
+
+    private final LatencyHistogram transferLatency = new LatencyHistogram();
+    private final LatencyHistogram findLatency = new LatencyHistogram();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    public LoadGenerator(LoadConfig config, DataSource dataSource) {
+        this.config = config;
+        this.dataSource = dataSource;
+        this.memberRepository = new MemberRepositoryV4_1(dataSource);
+        this.memberService = transactional(new MemberServiceV4(memberRepository),
+                new DataSourceTransactionManager(dataSource));
+        this.keySelector = KeySelector.of(config.distribution, config.members,
+                config.zipfExponent, config.hotFraction, config.hotProbability);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // 커넥션 획득/SQL 로그가 결과를 가리지 않도록
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(LoadGenerator.class)).setLevel(Level.INFO);
+
+        LoadConfig config = LoadConfig.parse(args);
+        boolean conserved;
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(config.url);
+            dataSource.setUsername(config.username);
+            dataSource.setPassword(config.password);
+            dataSource.setMaximumPoolSize(config.threads + 2);
+            conserved = new LoadGenerator(config, dataSource).run();
+        }
+        if (!conserved) {
+            System.exit(1);
+        }
+    }
+
+    public boolean run() throws InterruptedException {
+        log.info("load config={}", config);
+        seed();
+
+        ExecutorService workers = Executors.newFixedThreadPool(config.threads);
+        long start = System.nanoTime();
+        long end = start + config.duration.toNanos();
+        for (int i = 0; i < config.threads; i++) {
+            workers.execute(() -> work(end));
+        }
+        workers.shutdown();
+
+        long lastReport = start;
+        long lastErrors = 0;
+        while (!workers.awaitTermination(config.reportInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+            long now = System.nanoTime();
+            long totalErrors = errors.sum();
+            report(now - start, now - lastReport, intervalLatency.snapshotAndReset(), totalErrors - lastErrors);
+            lastReport = now;
+            lastErrors = totalErrors;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        log.info("[summary] elapsed={}s, transfers={}, finds={}, errors={}, throughput={} ops/s",
+                TimeUnit.NANOSECONDS.toSeconds(elapsed), transferLatency.getCount(), findLatency.getCount(),
+                errors.sum(), perSecond(transferLatency.getCount() + findLatency.getCount(), elapsed));
+        log.info("[transfer] {}", percentiles(transferLatency));
+        log.info("[find] {}", percentiles(findLatency));
+        return verifyConservation();
+    }
+
+    private void work(long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = config.rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * config.threads / config.rate) : 0;
+        long next = System.nanoTime();
+
+        while (true) {
+            long intended;
+            if (intervalNanos > 0) {
+                intended = next;
+                next += intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            if (System.nanoTime() - end >= 0) {
+                return;
+            }
+
+            boolean find = random.nextDouble() < config.readRatio;
+            try {
+                if (find) {
+                    memberRepository.findById(memberId(keySelector.next(random)));
+                } else {
+                    transfer(random);
+                }
+            } catch (RuntimeException e) {
+                errors.increment();
+                log.debug("operation failed", e);
+            }
+            long latency = System.nanoTime() - intended;
+            (find ? findLatency : transferLatency).record(latency);
+            intervalLatency.record(latency);
+        }
+    }
+
+    private void transfer(ThreadLocalRandom random) {
+        int from = keySelector.next(random);
+        int to = keySelector.next(random);
+        while (to == from && config.members > 1) {
+            to = keySelector.next(random);
+        }
+        memberService.accountTransfer(memberId(from), memberId(to), 1 + random.nextInt(config.maxTransferMoney));
+    }
+
+    private void report(long elapsed, long interval, LatencyHistogram latency, long intervalErrors) {
+        log.info("[{}s] throughput={} ops/s, errors={}, {}", TimeUnit.NANOSECONDS.toSeconds(elapsed),
+                perSecond(latency.getCount(), interval), intervalErrors, percentiles(latency));
+    }
+
+    private String percentiles(LatencyHistogram latency) {
+        return String.format("count=%d, p50=%.2fms, p90=%.2fms, p99=%.2fms, p99.9=%.2fms, max=%.2fms",
+                latency.getCount(), millis(latency.percentile(0.5)), millis(latency.percentile(0.9)),
+                millis(latency.percentile(0.99)), millis(latency.percentile(0.999)), millis(latency.getMax()));
+    }
+
+    // 회원 생성 : 이전 실행의 회원은 지우고 배치 insert
+    private void seed() {
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement delete = con.prepareStatement("delete from member where member_id like ?")) {
+                delete.setString(1, MEMBER_PREFIX + "%");
+                delete.executeUpdate();
+            }
+            try (PreparedStatement insert = con.prepareStatement("insert into member(member_id, money) values (?, ?)")) {
+                for (int i = 0; i < config.members; i++) {
+                    insert.setString(1, memberId(i));
+                    insert.setInt(2, config.initialMoney);
+                    insert.addBatch();
+                    if ((i + 1) % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            con.commit();
+            log.info("seeded members={}, money={}", config.members, config.initialMoney);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 이체는 잔액을 옮기기만 하므로 합계는 변하지 않아야 한다
+    private boolean verifyConservation() {
+        String sql = "select count(*), coalesce(sum(money), 0) from member where member_id like ?";
+        try (Connection con = dataSource.getConnection(); PreparedStatement pstmt = con.prepareStatement(sql)) {
+            pstmt.setString(1, MEMBER_PREFIX + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                long count = rs.getLong(1);
+                long total = rs.getLong(2);
+                long expected = (long) config.members * config.initialMoney;
+                if (count == config.members && total == expected) {
+                    log.info("[conservation] OK members={}, total={}", count, total);
+                    return true;
+                }
+                log.error("[conservation] FAILED members={}/{}, total={}, expected={}, diff={}",
+                        count, config.members, total, expected, total - expected);
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // @Transactional 이 적용되도록 트랜잭션 프록시 생성 (스프링 컨테이너 없이)
+    private static MemberServiceV4 transactional(MemberServiceV4 target, DataSourceTransactionManager transactionManager) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return (MemberServiceV4) proxyFactory.getProxy();
+    }
+
+    private static String memberId(int index) {
+        return MEMBER_PREFIX + index;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return nanos == 0 ? 0 : count * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * 실행 옵션 : key=value 인자, 없으면 -Dload.key 시스템 프로퍼티, 없으면 기본값
+     */
+    static final class LoadConfig {
+
+        final String url;
+        final String username;
+        final String password;
+        final int members;
+        final int initialMoney;
+        final int maxTransferMoney;
+        final int threads;
+        final Duration duration;
+        final Duration reportInterval;
+        final double rate; // 전체 초당 요청 수. 0 이면 제한 없음
+        final double readRatio;
+        final String distribution; // uniform, zipf, hotspot
+        final double zipfExponent;
+        final double hotFraction;
+        final double hotProbability;
+
+        private LoadConfig(Map<String, String> options) {
+            this.url = option(options, "url", ConnectionConst.URL);
+            this.username = option(options, "username", ConnectionConst.USERNAME);
+            this.password = option(options, "password", ConnectionConst.PASSWORD);
+            this.members = Integer.parseInt(option(options, "members", "1000"));
+            this.initialMoney = Integer.parseInt(option(options, "initialMoney", "10000"));
+            this.maxTransferMoney = Integer.parseInt(option(options, "maxTransferMoney", "100"));
+            this.threads = Integer.parseInt(option(options, "threads", "8"));
+            this.duration = Duration.ofSeconds(Long.parseLong(option(options, "duration", "30")));
+            this.reportInterval = Duration.ofSeconds(Long.parseLong(option(options, "reportInterval", "5")));
+            this.rate = Double.parseDouble(option(options, "rate", "0"));
+            this.readRatio = Double.parseDouble(option(options, "readRatio", "0.5"));
+            this.distribution = option(options, "distribution", "uniform");
+            this.zipfExponent = Double.parseDouble(option(options, "zipfExponent", "1.0"));
+            this.hotFraction = Double.parseDouble(option(options, "hotFraction", "0.01"));
+            this.hotProbability = Double.parseDouble(option(options, "hotProbability", "0.9"));
+
+            if (members < 1 || members > 99_999_999) { // member_id varchar(10)
+                throw new IllegalArgumentException("members=" + members);
+            }
+        }
+
+        static LoadConfig parse(String[] args) {
+            Map<String, String> options = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator < 1) {
+                    throw new IllegalArgumentException("expected key=value, arg=" + arg);
+                }
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            return new LoadConfig(options);
+        }
+
+        private static String option(Map<String, String> options, String key, String defaultValue) {
+            return options.getOrDefault(key, System.getProperty("load." + key, defaultValue));
+        }
+
+        @Override
+        public String toString() {
+            return "threads=" + threads + ", duration=" + duration + ", rate=" + rate + ", readRatio=" + readRatio
+                    + ", members=" + members + ", distribution=" + distribution
+                    + ", zipfExponent=" + zipfExponent + ", hotFraction=" + hotFraction
+                    + ", hotProbability=" + hotProbability;
+        }
+    }
+}
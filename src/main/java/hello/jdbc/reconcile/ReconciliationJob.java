@@ -0,0 +1,224 @@
+package hello.jdbc.reconcile;
+
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.support.KeyBoundaries;
+import hello.jdbc.support.KeyRangeCondition;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 회원 잔액 정합성 점검 (병렬)
+ * 1. member_id 순서로 rangeSize 건마다 경계 키를 구한다 (KeyBoundaries, 직전 경계부터 인덱스만 읽는다)
+ * 2. 구간들을 ForkJoinPool 에서 나눠서 처리. 구간마다 별도의 read-only 커넥션에서 forward-only 커서로 스트리밍
+ *    - 전체 회원 수, 잔액 합계, 음수 잔액
+ *    - checkLedger 면 같은 구간의 원장 계좌 점검 (LedgerRepository)
+ *      스냅샷 + tail 잔액 = 개설 금액 + 전체 journal 합계 인지 (압축 누락/중복 확인)
+ *      스냅샷(계좌) 없이 journal 만 있는 회원
+ * 3. checkLedger 면 출금/입금 합이 0 이 아닌 이체(transfer_journal) 확인
+ * 구간 조건은 경계가 있는 것만 넣어서 구간마다 인덱스 range scan 이 되게 한다
+ *
+ * 주의! member.money 와 원장 잔액은 비교하지 않는다. 둘은 서로 다른 저장소다
+ * (MemberServiceV4 는 member 만, LedgerService 는 journal 만 변경하고 둘을 맞춰주는 경로는 없다)
+ *
+ * 주의! DataSource 는 parallelism 개 이상의 커넥션을 줄 수 있어야 한다
+ */
+@Slf4j
+public class ReconciliationJob {
+
+    private static final String RANGE_SQL = "select member_id, money from member%s order by member_id";
+    private static final String LEDGER_RANGE_SQL = "select s.member_id," +
+            " s.money + coalesce(sum(case when j.compaction_id is null then j.amount end), 0) as balance," +
+            " s.opening_money + coalesce(sum(j.amount), 0) as journal_balance" +
+            " from balance_snapshot s left join transfer_journal j on j.member_id = s.member_id" +
+            "%s group by s.member_id, s.money, s.opening_money order by s.member_id";
+    private static final String ORPHAN_JOURNAL_SQL = "select distinct j.member_id from transfer_journal j" +
+            "%s and not exists (select 1 from balance_snapshot s where s.member_id = j.member_id)";
+    private static final String UNBALANCED_TRANSFER_SQL = "select count(*) from" +
+            " (select transfer_id from transfer_journal group by transfer_id having sum(amount) <> 0)";
+
+    private final DataSource dataSource;
+    private final int parallelism;
+    private final int rangeSize;
+    private final int fetchSize;
+    private final boolean checkLedger;
+
+    public ReconciliationJob(DataSource dataSource, int parallelism, int rangeSize, int fetchSize, boolean checkLedger) {
+        this.dataSource = dataSource;
+        this.parallelism = parallelism;
+        this.rangeSize = rangeSize;
+        this.fetchSize = fetchSize;
+        this.checkLedger = checkLedger;
+    }
+
+    public ReconciliationReport run() {
+        long start = System.currentTimeMillis();
+        List<String> boundaries = findBoundaries();
+        List<KeyRange> ranges = new ArrayList<>(boundaries.size() + 1);
+        String lower = null;
+        for (String boundary : boundaries) {
+            ranges.add(new KeyRange(lower, boundary));
+            lower = boundary;
+        }
+        ranges.add(new KeyRange(lower, null)); // 마지막 구간 (끝 제한 없음)
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ReconciliationReport report;
+        try {
+            report = pool.invoke(new RangeTask(ranges, 0, ranges.size()));
+        } finally {
+            pool.shutdown();
+        }
+        if (checkLedger) {
+            report.unbalancedTransfers(countUnbalancedTransfers());
+        }
+        report.elapsed(System.currentTimeMillis() - start);
+
+        log.info("reconciliation consistent={}, members={}, totalMoney={}, negative={}, ledgerMismatch={}, orphanJournal={}, " +
+                        "unbalancedTransfers={}, ranges={}, slowestRange={}ms, elapsed={}ms, {} members/s",
+                report.isConsistent(), report.getMembers(), report.getTotalMoney(), report.getNegativeBalances(),
+                report.getLedgerMismatches(), report.getOrphanJournalMembers(), report.getUnbalancedTransfers(), report.getRanges(),
+                report.getSlowestRangeMillis(), report.getElapsedMillis(), report.getMembersPerSecond());
+        return report;
+    }
+
+    private List<String> findBoundaries() {
+        try (Connection con = dataSource.getConnection()) {
+            return KeyBoundaries.find(con, "member", "member_id", null, null, rangeSize);
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // 구간 (lower, upper] 점검
+    private ReconciliationReport reconcile(KeyRange range) {
+        long start = System.currentTimeMillis();
+        ReconciliationReport report = new ReconciliationReport();
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setReadOnly(true);
+            con.setAutoCommit(false); // 구간 안에서는 하나의 스냅샷으로 읽는다
+            try {
+                KeyRangeCondition members = range.condition("member_id");
+                try (PreparedStatement pstmt = prepareStreaming(con, String.format(RANGE_SQL, members.toWhereClause()))) {
+                    members.bind(pstmt, 1);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            report.member(rs.getString(1), rs.getInt(2));
+                        }
+                    }
+                }
+                if (checkLedger) {
+                    reconcileLedger(con, range, report);
+                }
+            } finally {
+                con.rollback();
+                con.setAutoCommit(true);
+                con.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+        long millis = System.currentTimeMillis() - start;
+        report.rangeDone(millis);
+        log.debug("range={}, members={}, {}ms", range, report.getMembers(), millis);
+        return report;
+    }
+
+    private void reconcileLedger(Connection con, KeyRange range, ReconciliationReport report) throws SQLException {
+        KeyRangeCondition accounts = range.condition("s.member_id");
+        try (PreparedStatement pstmt = prepareStreaming(con, String.format(LEDGER_RANGE_SQL, accounts.toWhereClause()))) {
+            accounts.bind(pstmt, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long balance = rs.getLong(2);
+                    long journalBalance = rs.getLong(3);
+                    if (balance != journalBalance) {
+                        report.ledgerMismatch(rs.getString(1), balance, journalBalance);
+                    }
+                }
+            }
+        }
+
+        KeyRangeCondition entries = range.condition("j.member_id");
+        try (PreparedStatement pstmt = prepareStreaming(con, String.format(ORPHAN_JOURNAL_SQL, entries.toWhereClause()))) {
+            entries.bind(pstmt, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    report.orphanJournal(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    private PreparedStatement prepareStreaming(Connection con, String sql) throws SQLException {
+        PreparedStatement pstmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(fetchSize);
+        return pstmt;
+    }
+
+    private long countUnbalancedTransfers() {
+        try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery(UNBALANCED_TRANSFER_SQL)) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    // 구간 목록을 절반씩 나눠서 병렬 처리
+    private final class RangeTask extends RecursiveTask<ReconciliationReport> {
+
+        private final List<KeyRange> ranges;
+        private final int from;
+        private final int to;
+
+        private RangeTask(List<KeyRange> ranges, int from, int to) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ReconciliationReport compute() {
+            if (to - from == 1) {
+                return reconcile(ranges.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(ranges, from, middle);
+            left.fork();
+            ReconciliationReport right = new RangeTask(ranges, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class KeyRange {
+
+        private final String lower; // 미포함, null 이면 처음부터
+        private final String upper; // 포함, null 이면 끝까지
+
+        private KeyRange(String lower, String upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        private KeyRangeCondition condition(String column) {
+            return new KeyRangeCondition(column).greaterThan(lower).lessOrEqual(upper);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + lower + ", " + upper + "]";
+        }
+    }
+}
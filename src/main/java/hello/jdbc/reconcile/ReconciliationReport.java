@@ -0,0 +1,94 @@
+package hello.jdbc.reconcile;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 정합성 점검 결과
+ * 구간별 결과를 merge 로 합친다
+ */
+@Getter
+@ToString
+public class ReconciliationReport {
+
+    static final int MAX_SAMPLES = 10;
+
+    private long members;
+    private long totalMoney;
+    private long negativeBalances;
+    private final List<String> negativeSamples = new ArrayList<>(); // 최대 MAX_SAMPLES 건
+    private long ledgerMismatches;
+    private final List<String> mismatchSamples = new ArrayList<>();
+    private long orphanJournalMembers; // 계좌(스냅샷) 없이 journal 만 있는 회원
+    private final List<String> orphanSamples = new ArrayList<>();
+    private long unbalancedTransfers; // 출금/입금 합이 0 이 아닌 이체
+
+    // 처리 지표
+    private int ranges;
+    private long slowestRangeMillis;
+    private long elapsedMillis;
+
+    public boolean isConsistent() {
+        return negativeBalances == 0 && ledgerMismatches == 0 && orphanJournalMembers == 0 && unbalancedTransfers == 0;
+    }
+
+    public long getMembersPerSecond() {
+        return elapsedMillis == 0 ? members : members * 1000 / elapsedMillis;
+    }
+
+    void member(String memberId, int money) {
+        members++;
+        totalMoney += money;
+        if (money < 0) {
+            negativeBalances++;
+            sample(negativeSamples, memberId);
+        }
+    }
+
+    // 스냅샷 + tail 잔액과 개설 금액 + 전체 journal 합계가 다름
+    void ledgerMismatch(String memberId, long balance, long journalBalance) {
+        ledgerMismatches++;
+        sample(mismatchSamples, memberId + "(balance=" + balance + ", journal=" + journalBalance + ")");
+    }
+
+    void orphanJournal(String memberId) {
+        orphanJournalMembers++;
+        sample(orphanSamples, memberId);
+    }
+
+    void rangeDone(long millis) {
+        ranges++;
+        slowestRangeMillis = Math.max(slowestRangeMillis, millis);
+    }
+
+    void unbalancedTransfers(long count) {
+        unbalancedTransfers = count;
+    }
+
+    void elapsed(long millis) {
+        elapsedMillis = millis;
+    }
+
+    ReconciliationReport merge(ReconciliationReport other) {
+        members += other.members;
+        totalMoney += other.totalMoney;
+        negativeBalances += other.negativeBalances;
+        ledgerMismatches += other.ledgerMismatches;
+        orphanJournalMembers += other.orphanJournalMembers;
+        ranges += other.ranges;
+        slowestRangeMillis = Math.max(slowestRangeMillis, other.slowestRangeMillis);
+        other.negativeSamples.forEach(sample -> sample(negativeSamples, sample));
+        other.mismatchSamples.forEach(sample -> sample(mismatchSamples, sample));
+        other.orphanSamples.forEach(sample -> sample(orphanSamples, sample));
+        return this;
+    }
+
+    private static void sample(List<String> samples, String value) {
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add(value);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.admission.AdmissionController;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.support.Deadline;
+import hello.jdbc.support.DeadlineContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Supplier;
+
+/**
+ * 트랜잭션 밖의 repository 호출에 진입 제어 적용
+ * 트랜잭션 안에서는 이미 커넥션을 가지고 있으므로(트랜잭션 진입 시 제어됨) 그대로 실행한다
+ * DeadlineContext 가 있으면 진입 대기도 요청의 남은 시간 안에서만 한다 (없으면 AdmissionController 기본 timeout)
+ * 이미 마감 시각이 지났으면 기다리지 않고 MyDeadlineExceededException
+ */
+public class AdmissionControlMemberRepository implements MemberRepository {
+
+    private final MemberRepository target;
+    private final AdmissionController admissionController;
+
+    public AdmissionControlMemberRepository(MemberRepository target, AdmissionController admissionController) {
+        this.target = target;
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return admit(() -> target.save(member));
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        return admit(() -> target.findById(memberId));
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        return admit(() -> target.findByIdOptional(memberId));
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        return admit(() -> target.existsById(memberId));
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        admit(() -> {
+            target.update(memberId, money);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String memberId) {
+        admit(() -> {
+            target.delete(memberId);
+            return null;
+        });
+    }
+
+    @Override
+    public Member saveOrUpdate(Member member) {
+        return admit(() -> target.saveOrUpdate(member));
+    }
+
+    @Override
+    public OptionalInt debitIfSufficient(String memberId, int amount) {
+        return admit(() -> target.debitIfSufficient(memberId, amount));
+    }
+
+    @Override
+    public Map<String, Member> findAllById(Collection<String> memberIds) {
+        return admit(() -> target.findAllById(memberIds));
+    }
+
+    private <T> T admit(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        Deadline deadline = DeadlineContext.current();
+        if (deadline == null) {
+            return admissionController.call(work);
+        }
+        if (deadline.isExpired()) {
+            throw new MyDeadlineExceededException("deadline exceeded before admission");
+        }
+        return admissionController.call(deadline, work);
+    }
+}
@@ -0,0 +1,234 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDbException;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * hedged read (읽기 전용 회원 조회)
+ * primary 조회가 최근 응답 시간의 percentile 지연 안에 끝나지 않으면 같은 쿼리를 secondary(replica)에도 보내고,
+ * 먼저 성공한 결과를 사용한다. 진 쪽 쿼리는 Statement.cancel() 로 취소한다
+ * 느린 쿼리가 아니라 가끔 느린 커넥션 때문에 생기는 꼬리 지연(p99.9)을 줄이기 위한 것
+ * primary 가 지연 안에 실패해도 secondary 로 다시 시도한다
+ *
+ * 응답 시간은 primary 가 끝날 때마다 기록한다 (성공, 실패, 취소 모두)
+ * 취소된 느린 primary 를 빼면 percentile 이 낮아지고 -> hedge 지연이 짧아져 hedge 가 더 늘어나는 악순환이 생긴다
+ * 취소된 시도는 취소되어 끝난 시점까지의 시간(= 최소한 실제로 실행된 시간)으로 기록된다
+ *
+ * 트랜잭션 밖 조회 전용. 각 시도는 자신의 DataSource 에서 커넥션을 직접 얻는다
+ */
+@Slf4j
+public class HedgedMemberReader {
+
+    private static final String FIND_BY_ID_SQL = "select * from member where member_id = ?";
+    private static final int MIN_SAMPLES = 100;
+
+    private final DataSource primary;
+    private final DataSource secondary;
+    private final Executor executor;
+    private final LatencyWindow latencies;
+    private final double percentile;
+    private final long initialDelayNanos;
+    private final long minDelayNanos;
+    private final LongAdder hedgedCount = new LongAdder();
+
+    public HedgedMemberReader(DataSource primary, DataSource secondary, Executor executor,
+                              double percentile, Duration initialDelay, Duration minDelay) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.executor = executor;
+        this.latencies = new LatencyWindow(1024);
+        this.percentile = percentile;
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.minDelayNanos = minDelay.toNanos();
+    }
+
+    public Member findById(String memberId) {
+        return findByIdOptional(memberId)
+                .orElseThrow(() -> new NoSuchElementException("member not found memberId=" + memberId));
+    }
+
+    public Optional<Member> findByIdOptional(String memberId) {
+        QueryAttempt primaryAttempt = new QueryAttempt(primary, memberId);
+        long start = System.nanoTime();
+        CompletableFuture<Optional<Member>> primaryFuture = CompletableFuture.supplyAsync(primaryAttempt, executor);
+        primaryFuture.whenComplete((value, ex) -> latencies.record(System.nanoTime() - start));
+
+        try {
+            return primaryFuture.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // 지연 초과 -> hedge
+        } catch (ExecutionException e) {
+            log.debug("primary failed, hedge memberId={}", memberId, e.getCause()); // 빠른 실패 -> hedge
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primaryAttempt.cancel();
+            throw new MyDbException(e);
+        }
+
+        hedgedCount.increment();
+        QueryAttempt secondaryAttempt = new QueryAttempt(secondary, memberId);
+        CompletableFuture<Optional<Member>> secondaryFuture = CompletableFuture.supplyAsync(secondaryAttempt, executor);
+        try {
+            return firstSuccess(primaryFuture, secondaryFuture).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MyDbException(e);
+        } finally {
+            // 이미 끝난 쪽은 영향 없음. 진 쪽 쿼리만 취소된다
+            primaryAttempt.cancel();
+            secondaryAttempt.cancel();
+        }
+    }
+
+    // hedge 한 횟수
+    public long getHedgedCount() {
+        return hedgedCount.sum();
+    }
+
+    private long hedgeDelayNanos() {
+        long observed = latencies.percentile(percentile);
+        return observed < 0 ? initialDelayNanos : Math.max(minDelayNanos, observed);
+    }
+
+    // 둘 중 먼저 성공한 결과. 둘 다 실패해야 실패
+    private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        first.whenComplete((value, ex) -> complete(result, failures, value, ex));
+        second.whenComplete((value, ex) -> complete(result, failures, value, ex));
+        return result;
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, AtomicInteger failures, T value, Throwable ex) {
+        if (ex == null) {
+            result.complete(value);
+        } else if (failures.incrementAndGet() == 2) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new MyDbException(cause);
+    }
+
+    private static final class QueryAttempt implements Supplier<Optional<Member>> {
+
+        private final DataSource dataSource;
+        private final String memberId;
+        private final AtomicReference<Statement> statement = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        private QueryAttempt(DataSource dataSource, String memberId) {
+            this.dataSource = dataSource;
+            this.memberId = memberId;
+        }
+
+        @Override
+        public Optional<Member> get() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            try (Connection con = dataSource.getConnection();
+                 PreparedStatement pstmt = con.prepareStatement(FIND_BY_ID_SQL)) {
+                statement.set(pstmt);
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                pstmt.setString(1, memberId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(new Member(rs.getString("member_id"), rs.getInt("money")));
+                    }
+                    return Optional.empty();
+                }
+            } catch (SQLException e) {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                throw new MyDbException(e);
+            } finally {
+                statement.set(null);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Statement running = statement.get();
+            if (running == null) {
+                return;
+            }
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                log.debug("cancel failed", e); // 이미 끝난 statement
+            }
+        }
+    }
+
+    // 최근 primary 응답 시간 (근사치면 충분하므로 기록은 락 없이)
+    private static final class LatencyWindow {
+
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final long[] samples;
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile double cachedPercentile = -1;
+        private volatile long cachedValue = -1;
+
+        private LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        void record(long nanos) {
+            int n = count.getAndIncrement();
+            samples[n % samples.length] = nanos;
+            if (n % RECOMPUTE_INTERVAL == 0) {
+                cachedPercentile = -1; // 다음 조회 때 다시 계산
+            }
+        }
+
+        long percentile(double percentile) {
+            int n = Math.min(count.get(), samples.length);
+            if (n < MIN_SAMPLES) {
+                return -1;
+            }
+            if (cachedPercentile == percentile) {
+                return cachedValue;
+            }
+            long[] copy = Arrays.copyOf(samples, n);
+            Arrays.sort(copy);
+            long value = copy[(int) Math.min(n - 1, Math.ceil(percentile * n) - 1)];
+            cachedValue = value;
+            cachedPercentile = percentile;
+            return value;
+        }
+    }
+}
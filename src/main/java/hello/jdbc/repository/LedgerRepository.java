@@ -0,0 +1,271 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.support.DeadlineContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * 이체 원장 (append-only 복식부기)
+ * 이체 1건 = 출금(-) / 입금(+) 2건의 journal row 를 배치 insert 로 기록한다
+ * 잔액 = 스냅샷 + 아직 스냅샷에 반영되지 않은 journal tail (compaction_id is null) 합계
+ *
+ * create table transfer_journal (
+ *     entry_id bigint auto_increment primary key,
+ *     transfer_id varchar(36) not null,
+ *     member_id varchar(10) not null,
+ *     amount integer not null,
+ *     compaction_id varchar(36),  -- 반영된 스냅샷 압축. null 이면 tail
+ *     created_at timestamp default current_timestamp not null
+ * );
+ * create index idx_transfer_journal_member on transfer_journal(member_id, compaction_id);
+ * create index idx_transfer_journal_compaction on transfer_journal(compaction_id);
+ *
+ * create table balance_snapshot (
+ *     member_id varchar(10) primary key,
+ *     money integer not null,
+ *     opening_money integer not null  -- 개설 금액 (정합성 점검 : money + tail = opening_money + 전체 journal 합계)
+ * );
+ *
+ * create table ledger_compaction_lock (  -- 압축끼리 직렬화하는 잠금 row
+ *     id integer primary key
+ * );
+ * insert into ledger_compaction_lock values (1);
+ */
+@Slf4j
+public class LedgerRepository {
+
+    private final DataSource dataSource;
+
+    public LedgerRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // 계좌 개설 : 초기 잔액을 스냅샷으로 기록
+    public void openAccount(String memberId, int money) {
+        String sql = "insert into balance_snapshot(member_id, money, opening_money) values (?, ?, ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, memberId);
+            pstmt.setInt(2, money);
+            pstmt.setInt(3, money);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    // 이체 기록 : 출금/입금 2건을 한번의 배치로 전송 (member row 를 update 하지 않으므로 row lock 경합이 없다)
+    // 계좌 존재/잔액 확인은 하지 않는다. 같은 트랜잭션에서 lockBalance, existsAccount 로 먼저 확인 (LedgerService)
+    public void appendTransfer(String transferId, String fromId, String toId, int money) {
+        String sql = "insert into transfer_journal(transfer_id, member_id, amount) values (?, ?, ?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+
+            pstmt.setString(1, transferId); // 출금
+            pstmt.setString(2, fromId);
+            pstmt.setInt(3, -money);
+            pstmt.addBatch();
+
+            pstmt.setString(1, transferId); // 입금
+            pstmt.setString(2, toId);
+            pstmt.setInt(3, money);
+            pstmt.addBatch();
+
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 출금 계좌 잠금 후 잔액 : 스냅샷 row 를 for update 로 잠가서 같은 계좌의 출금끼리 직렬화한다
+     * 잔액 확인과 append 가 같은 트랜잭션이어야 하므로 트랜잭션 안에서만 호출할 수 있다
+     */
+    public int lockBalance(String memberId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("lockBalance must run in a transaction");
+        }
+        String sql = "select member_id from balance_snapshot where member_id = ? for update";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                throw new NoSuchElementException("ledger account not found memberId=" + memberId);
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+        return findBalance(memberId);
+    }
+
+    public boolean existsAccount(String memberId) {
+        String sql = "select 1 from balance_snapshot where member_id = ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            return rs.next();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    // 잔액 조회 : 스냅샷 + journal tail 을 한번의 쿼리로 계산
+    public int findBalance(String memberId) {
+        String sql = "select s.money + coalesce((select sum(j.amount) from transfer_journal j" +
+                " where j.member_id = s.member_id and j.compaction_id is null), 0) as balance" +
+                " from balance_snapshot s where s.member_id = ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("balance");
+            } else {
+                throw new NoSuchElementException("ledger account not found memberId=" + memberId);
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    /**
+     * 스냅샷 압축 : 커밋된 tail 을 스냅샷 잔액에 반영. 반영된 entry 수를 반환
+     * entry_id 나 시각 기준의 mark 를 쓰지 않는다. auto_increment 값은 커밋 전에 할당되므로
+     * mark 보다 작은 id 가 mark 이후에 커밋되면 영영 반영되지 않기 때문
+     * 1. 압축끼리 직렬화 (ledger_compaction_lock row lock. 계좌 row 는 잠그지 않으므로 이체를 막지 않는다)
+     * 2. 이 트랜잭션에서 보이는(= 커밋된) tail entry 에 compactionId 표시
+     * 3. 표시한 entry 만 합산해서 스냅샷에 반영
+     * 2, 3 이 같이 커밋되므로 늦게 커밋된 entry 는 tail 로 남았다가 다음 압축에서 반영된다
+     *
+     * 주의! 2, 3 이 같은 트랜잭션이어야 한다 (LedgerService.takeSnapshot)
+     */
+    public int compact() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("compact must run in a transaction");
+        }
+        String lockSql = "select id from ledger_compaction_lock where id = 1 for update";
+        String claimSql = "update transfer_journal set compaction_id = ? where compaction_id is null" +
+                " and member_id in (select member_id from balance_snapshot)";
+        String mergeSql = "merge into balance_snapshot(member_id, money) key(member_id)" +
+                " select s.member_id, s.money + sum(j.amount)" +
+                " from balance_snapshot s join transfer_journal j on j.member_id = s.member_id" +
+                " where j.compaction_id = ?" +
+                " group by s.member_id, s.money";
+        String compactionId = UUID.randomUUID().toString();
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(lockSql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                throw new IllegalStateException("ledger_compaction_lock row not found");
+            }
+            JdbcUtils.closeResultSet(rs);
+            rs = null;
+            JdbcUtils.closeStatement(pstmt);
+            pstmt = null;
+
+            pstmt = con.prepareStatement(claimSql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, compactionId);
+            int entries = pstmt.executeUpdate();
+            JdbcUtils.closeStatement(pstmt);
+            pstmt = null;
+            if (entries == 0) {
+                return 0;
+            }
+
+            pstmt = con.prepareStatement(mergeSql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, compactionId);
+            int accounts = pstmt.executeUpdate();
+            log.info("compact compactionId={}, entries={}, accounts={}", compactionId, entries, accounts);
+            return entries;
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    private MyDbException translate(SQLException e) {
+        if (e instanceof SQLTimeoutException && DeadlineContext.isExceeded(dataSource)) {
+            return new MyDeadlineExceededException(e);
+        }
+        return new MyDbException(e);
+    }
+
+    private void close(Connection con, Statement stmt, ResultSet rs) {
+        JdbcUtils.closeResultSet(rs);
+        JdbcUtils.closeStatement(stmt);
+        DataSourceUtils.releaseConnection(con, dataSource);
+    }
+
+    private Connection getConnection() {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        log.info("get connection={}, class={}", con, con.getClass());
+        return con;
+    }
+}
@@ -0,0 +1,165 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시에 들어오는 findById 를 모아서 조회
+ * - single-flight : 같은 memberId 의 조회가 진행 중이면 새 쿼리를 보내지 않고 그 결과를 같이 받는다
+ * - micro-batch : window 안에 요청된 서로 다른 memberId 는 findAllById (in 절 쿼리) 한번으로 조회
+ * 캐시 만료 직후 인기 계좌에 몰리는 같은 쿼리 수백 건을 한 건으로 줄인다
+ *
+ * 트랜잭션 안의 조회는 모으지 않고 바로 repository 를 호출한다 (다른 커넥션에서 조회하면 안 되므로)
+ * close() 이후의 조회는 IllegalStateException 으로 실패한다 (close 전에 모인 요청은 close 에서 조회)
+ */
+@Slf4j
+public class MemberBatchLoader implements AutoCloseable {
+
+    private final MemberRepository repository;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Member>>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private List<String> pending = new ArrayList<>();
+    private volatile boolean closed;
+
+    public MemberBatchLoader(MemberRepository repository, Duration window, int maxBatchSize) {
+        this.repository = repository;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Member findById(String memberId) {
+        return findByIdOptional(memberId)
+                .orElseThrow(() -> new NoSuchElementException("member not found memberId=" + memberId));
+    }
+
+    public Optional<Member> findByIdOptional(String memberId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return repository.findByIdOptional(memberId);
+        }
+        try {
+            return load(memberId).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    public CompletableFuture<Optional<Member>> load(String memberId) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("loader is closed"));
+        }
+        CompletableFuture<Optional<Member>> existing = inFlight.get(memberId);
+        if (existing != null) {
+            return existing; // single-flight
+        }
+        CompletableFuture<Optional<Member>> created = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(memberId, created);
+        if (existing != null) {
+            return existing;
+        }
+        enqueue(memberId);
+        return created;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdown();
+        flush();
+    }
+
+    private void enqueue(String memberId) {
+        List<String> full = null;
+        boolean first;
+        synchronized (lock) {
+            pending.add(memberId);
+            first = pending.size() == 1;
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new ArrayList<>();
+            }
+        }
+        if (full != null) {
+            dispatch(full); // 가득 찬 batch 는 기다리지 않고 호출 스레드에서 바로 조회
+        } else if (first) {
+            try {
+                scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                rejectPending(); // close 와 경합 : 이 batch 를 flush 할 스레드가 없다
+            }
+        }
+    }
+
+    private void rejectPending() {
+        List<String> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        IllegalStateException closedException = new IllegalStateException("loader is closed");
+        for (String memberId : batch) {
+            CompletableFuture<Optional<Member>> future = inFlight.remove(memberId);
+            if (future != null) {
+                future.completeExceptionally(closedException);
+            }
+        }
+    }
+
+    private void flush() {
+        List<String> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        dispatch(batch);
+    }
+
+    // 조회 결과를 대기 중인 호출들에 나눠준다
+    private void dispatch(List<String> memberIds) {
+        log.debug("load batch size={}", memberIds.size());
+        Map<String, Member> found;
+        try {
+            found = repository.findAllById(memberIds);
+        } catch (RuntimeException e) {
+            for (String memberId : memberIds) {
+                CompletableFuture<Optional<Member>> future = inFlight.remove(memberId);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        for (String memberId : memberIds) {
+            CompletableFuture<Optional<Member>> future = inFlight.remove(memberId);
+            if (future != null) {
+                future.complete(Optional.ofNullable(found.get(memberId)));
+            }
+        }
+    }
+}
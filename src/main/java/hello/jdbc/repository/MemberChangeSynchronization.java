@@ -0,0 +1,58 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.event.MemberChangePublisher;
+import hello.jdbc.event.MemberChanged;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 트랜잭션 하나에서 발생한 회원 변경 이벤트 모음
+ * 트랜잭션 동기화로 등록되므로 REQUIRES_NEW 등으로 트랜잭션이 바뀌면 새로 만들어진다
+ */
+class MemberChangeSynchronization implements TransactionSynchronization {
+
+    private final Object owner;
+    private final MemberChangePublisher publisher;
+    private final String transactionId = UUID.randomUUID().toString();
+    private final List<MemberChanged> events = new ArrayList<>();
+
+    private MemberChangeSynchronization(Object owner, MemberChangePublisher publisher) {
+        this.owner = owner;
+        this.publisher = publisher;
+    }
+
+    // 현재 트랜잭션에 등록된 owner 의 이벤트 모음. 없으면 새로 등록
+    static MemberChangeSynchronization current(Object owner, MemberChangePublisher publisher) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof MemberChangeSynchronization
+                    && ((MemberChangeSynchronization) synchronization).owner == owner) {
+                return (MemberChangeSynchronization) synchronization;
+            }
+        }
+        MemberChangeSynchronization created = new MemberChangeSynchronization(owner, publisher);
+        TransactionSynchronizationManager.registerSynchronization(created);
+        return created;
+    }
+
+    void add(String memberId, Integer oldMoney, Integer newMoney) {
+        events.add(new MemberChanged(memberId, oldMoney, newMoney, transactionId));
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+        if (!events.isEmpty()) {
+            publisher.beforeCommit(List.copyOf(events));
+        }
+    }
+
+    @Override
+    public void afterCommit() {
+        if (!events.isEmpty()) {
+            publisher.afterCommit(List.copyOf(events));
+        }
+    }
+}
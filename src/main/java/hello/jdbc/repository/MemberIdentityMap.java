@@ -0,0 +1,66 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 트랜잭션 범위 identity map
+ * 트랜잭션 안에서 한번 읽은 회원은 다시 조회하지 않고, update 는 dirty 상태로 모아두었다가 커밋 직전에 한번에 반영한다
+ * 트랜잭션 동기화 리소스로 바인딩되며, 트랜잭션이 끝나면 버려진다
+ */
+class MemberIdentityMap {
+
+    private final ConnectionHolder owner; // 이 map 을 만든 트랜잭션의 커넥션
+    private final Map<String, Member> loaded = new HashMap<>();
+    private final Map<String, Integer> dirty = new LinkedHashMap<>();
+
+    MemberIdentityMap(ConnectionHolder owner) {
+        this.owner = owner;
+    }
+
+    boolean isOwnedBy(Object connectionHolder) {
+        return owner == connectionHolder;
+    }
+
+    Member get(String memberId) {
+        return loaded.get(memberId);
+    }
+
+    // 조회 결과 등록. 아직 반영되지 않은 변경이 있으면 덮어쓴다
+    Member loaded(Member member) {
+        Integer money = dirty.get(member.getMemberId());
+        if (money != null) {
+            member.setMoney(money);
+        }
+        loaded.put(member.getMemberId(), member);
+        return member;
+    }
+
+    void update(String memberId, int money) {
+        dirty.put(memberId, money);
+        Member member = loaded.get(memberId);
+        if (member != null) {
+            member.setMoney(money);
+        }
+    }
+
+    boolean isDirty(String memberId) {
+        return dirty.containsKey(memberId);
+    }
+
+    void removed(String memberId) {
+        loaded.remove(memberId);
+        dirty.remove(memberId);
+    }
+
+    // 반영할 변경을 꺼내고 비운다
+    Map<String, Integer> drainDirty() {
+        Map<String, Integer> drained = new LinkedHashMap<>(dirty);
+        dirty.clear();
+        return drained;
+    }
+}
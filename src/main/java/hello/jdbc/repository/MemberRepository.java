@@ -2,9 +2,28 @@ package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
 public interface MemberRepository {
     Member save(Member member);
     Member findById(String memberId);
+    Optional<Member> findByIdOptional(String memberId); // 없으면 예외 대신 Optional.empty()
+    boolean existsById(String memberId);
     void update(String memberId, int money);
     void delete(String memberId);
+    Member saveOrUpdate(Member member); // 없으면 insert, 있으면 금액 변경 (한번의 쿼리)
+    OptionalInt debitIfSufficient(String memberId, int amount); // 잔액이 충분하면 차감 후 잔액. 부족하거나 없는 회원이면 empty
+
+    // 여러 회원 조회 (memberId -> Member). 없는 회원은 결과에 포함되지 않는다
+    default Map<String, Member> findAllById(Collection<String> memberIds) {
+        Map<String, Member> result = new LinkedHashMap<>();
+        for (String memberId : memberIds) {
+            findByIdOptional(memberId).ifPresent(member -> result.put(memberId, member));
+        }
+        return result;
+    }
 }
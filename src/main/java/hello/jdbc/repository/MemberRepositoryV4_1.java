@@ -1,34 +1,97 @@
 package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.event.MemberChangePublisher;
 import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.support.DeadlineContext;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * 예외 누수 문제 해결
  * 체크 예외를 런타임 예외로 변경
  * MemberRepository 인터페이스 사용
  * throws SQLException 제거
+ *
+ * 트랜잭션 안에서는 MemberIdentityMap 을 사용한다
+ * - 같은 회원을 다시 findById 하면 이미 읽은 row 를 반환
+ * - update 는 바로 실행하지 않고 커밋 직전(beforeCommit)에 하나의 JDBC 배치로 반영
+ * - 읽기/쓰기 트랜잭션에서는 조회할 때 select ... for update 로 row lock 을 먼저 잡는다
+ *   (update 가 커밋 직전까지 미뤄지므로, 읽은 값을 기준으로 한 변경이 다른 트랜잭션의 변경을 덮어쓰지 않도록)
+ * - 없는 회원을 update 하면 커밋 시 배치 결과 건수를 확인해서 커밋을 실패시킨다 (MyDbException, 롤백)
+ * 주의! 같은 트랜잭션에서 다른 SQL 로 member 를 직접 읽으면 아직 반영되지 않은 변경은 보이지 않는다
+ * 트랜잭션 밖의 update 는 바로 실행하고, 없는 회원이면 아무것도 변경하지 않는다
+ *
+ * saveOrUpdate / debitIfSufficient 는 조회 없이 한번의 쿼리로 처리한다 (identity map 은 결과로 갱신)
+ *
+ * MemberChangePublisher 를 넘기면 변경(save/update/delete/saveOrUpdate/debitIfSufficient)마다 MemberChanged 이벤트를 만들고 커밋된 후에만 전달한다
+ * 이때 트랜잭션 밖의 변경은 repository 가 직접 짧은 트랜잭션으로 감싼다
+ * (auto commit 으로 변경이 먼저 커밋되면, beforeCommit 의 outbox 기록 전에 죽었을 때 이벤트가 사라지므로)
+ * 따라서 이 경우 트랜잭션 밖에서 없는 회원을 update 해도 트랜잭션 안과 같이 예외가 발생한다
  */
 
 @Slf4j
 public class MemberRepositoryV4_1 implements MemberRepository {
 
+    private static final String SAVE_SQL = "insert into member(member_id, money) values (?, ?)";
+    private static final String FIND_BY_ID_SQL = "select * from member where member_id = ?";
+    private static final String FIND_BY_ID_FOR_UPDATE_SQL = FIND_BY_ID_SQL + " for update";
+    private static final String EXISTS_BY_ID_SQL = "select 1 from member where member_id = ?";
+    private static final String UPDATE_SQL = "update member set money=? where member_id=?";
+    private static final String DELETE_SQL = "delete from member where member_id =?";
+    private static final String SAVE_OR_UPDATE_SQL = "merge into member(member_id, money) key(member_id) values (?, ?)";
+    private static final String DEBIT_SQL = "select money from final table" +
+            " (update member set money = money - ? where member_id = ? and money >= ?)"; // 변경 후 잔액을 같은 쿼리로 반환
+    private static final String FIND_ALL_BY_ID_SQL = "select * from member where member_id in (%s)";
+    private static final String FOR_UPDATE = " for update";
+    private static final int MAX_IN_SIZE = 500; // in 절 파라미터 수 제한
+
     private final DataSource dataSource; // 의존관계 주입
+    private final MemberChangePublisher changePublisher; // null 이면 이벤트 없음
+    private final TransactionTemplate localTransaction; // 이벤트가 있을 때 트랜잭션 밖의 변경을 감싼다
 
     public MemberRepositoryV4_1(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    public MemberRepositoryV4_1(DataSource dataSource, MemberChangePublisher changePublisher) {
         this.dataSource = dataSource;
+        this.changePublisher = changePublisher;
+        this.localTransaction = changePublisher == null ? null
+                : new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    // 사용하는 SQL 목록 (워밍업 시 커넥션마다 미리 prepare)
+    public static List<String> statements() {
+        return List.of(SAVE_SQL, FIND_BY_ID_SQL, FIND_BY_ID_FOR_UPDATE_SQL, EXISTS_BY_ID_SQL, UPDATE_SQL, DELETE_SQL, SAVE_OR_UPDATE_SQL, DEBIT_SQL);
     }
 
     @Override
     public Member save(Member member){
-        String sql = "insert into member(member_id, money) values (?, ?)";
+        if (needsLocalTransaction()) {
+            return localTransaction.execute(status -> save(member));
+        }
+        String sql = SAVE_SQL;
 
         Connection con = null;
         PreparedStatement pstmt = null; // 데이터 베이스의 쿼리를 날림. Statement 의 자식타입 -> ?를 통한 파라미터 바인딩이 가능하게 됨.
@@ -36,12 +99,19 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
             pstmt.setString(1,member.getMemberId()); // sql 에 대한 파라미터 바인딩
             pstmt.setInt(2,member.getMoney());
             pstmt.executeUpdate(); // statement 를 통해 준비된 SQL 을 커넥션을 통해 실제 데이터베이스에 전달. 건 수(int)를 반환함
+
+            MemberIdentityMap identityMap = identityMap();
+            if (identityMap != null) {
+                identityMap.loaded(new Member(member.getMemberId(), member.getMoney()));
+            }
+            changed(member.getMemberId(), null, member.getMoney());
             return member;
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
         } finally{
             close(con, pstmt, null); // 쿼리 실행 후 리소스(Connection,PreparedStatement)를 정리
         }
@@ -51,7 +121,19 @@ public class MemberRepositoryV4_1 implements MemberRepository {
     // 데이터 조회
     @Override
     public Member findById(String memberId) {
-        String sql = "select * from member where member_id = ?";
+        return findByIdOptional(memberId)
+                .orElseThrow(() -> new NoSuchElementException("member not found memberId=" + memberId));
+    }
+
+    // 데이터 조회 : 없으면 예외 대신 Optional.empty()
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        MemberIdentityMap identityMap = identityMap();
+        if (identityMap != null && identityMap.get(memberId) != null) {
+            return Optional.of(identityMap.get(memberId)); // 트랜잭션 안에서 이미 읽은 회원
+        }
+
+        String sql = lockOnRead(identityMap) ? FIND_BY_ID_FOR_UPDATE_SQL : FIND_BY_ID_SQL;
 
         Connection con = null;
         PreparedStatement pstmt = null;
@@ -60,6 +142,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery();
@@ -67,23 +150,110 @@ public class MemberRepositoryV4_1 implements MemberRepository {
                 Member member = new Member();
                 member.setMemberId(rs.getString("member_id"));
                 member.setMoney(rs.getInt("money"));
-                return member;
+                return Optional.of(identityMap == null ? member : identityMap.loaded(member));
             }else {
-                throw new NoSuchElementException("member not found memberId=" + memberId);
+                return Optional.empty();
             }
 
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
         }
         finally{
             close(con, pstmt, rs); // 헤제는 역순
         }
     }
 
+    // 여러 회원 조회 : in 절 하나로 조회 (MAX_IN_SIZE 단위로 나눈다)
+    @Override
+    public Map<String, Member> findAllById(Collection<String> memberIds) {
+        Map<String, Member> result = new LinkedHashMap<>();
+        MemberIdentityMap identityMap = identityMap();
+        List<String> missing = new ArrayList<>();
+        for (String memberId : new LinkedHashSet<>(memberIds)) {
+            Member known = identityMap == null ? null : identityMap.get(memberId);
+            if (known != null) {
+                result.put(memberId, known); // 트랜잭션 안에서 이미 읽은 회원
+            } else {
+                missing.add(memberId);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += MAX_IN_SIZE) {
+            List<String> chunk = missing.subList(from, Math.min(missing.size(), from + MAX_IN_SIZE));
+            String sql = String.format(FIND_ALL_BY_ID_SQL, String.join(",", Collections.nCopies(chunk.size(), "?")))
+                    + (lockOnRead(identityMap) ? FOR_UPDATE : "");
+
+            Connection con = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+
+            try {
+                con = getConnection();
+                pstmt = con.prepareStatement(sql);
+                DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Member member = new Member(rs.getString("member_id"), rs.getInt("money"));
+                    result.put(member.getMemberId(), identityMap == null ? member : identityMap.loaded(member));
+                }
+            } catch (SQLException e) {
+                throw translate(e);
+            } finally {
+                close(con, pstmt, rs);
+            }
+        }
+        return result;
+    }
+
+    // 존재 여부 : row 를 매핑하지 않는다
+    @Override
+    public boolean existsById(String memberId) {
+        MemberIdentityMap identityMap = identityMap();
+        if (identityMap != null && identityMap.get(memberId) != null) {
+            return true;
+        }
+
+        String sql = EXISTS_BY_ID_SQL;
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            return rs.next();
+        } catch (SQLException e) {
+            throw translate(e);
+        }
+        finally{
+            close(con, pstmt, rs);
+        }
+    }
+
     // 데이터 변경
     @Override
     public void update(String memberId, int money) {
-        String sql = "update member set money=? where member_id=?"; // 2개의 쿼리 파라미터를 받음
+        if (needsLocalTransaction()) {
+            localTransaction.executeWithoutResult(status -> update(memberId, money));
+            return;
+        }
+        MemberIdentityMap identityMap = identityMap();
+        if (identityMap != null) {
+            changed(memberId, knownMoney(identityMap, memberId), money);
+            identityMap.update(memberId, money); // 커밋 직전에 배치로 반영
+            return;
+        }
+
+        String sql = UPDATE_SQL; // 2개의 쿼리 파라미터를 받음
 
         Connection con = null;
         PreparedStatement pstmt = null;
@@ -91,12 +261,16 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
             pstmt.setInt(1,money) ;
             pstmt.setString(2,memberId);
             int resultSize = pstmt.executeUpdate(); // 쿼리를 실행하고 영향받은 row수
             log.info("resultSize={}", resultSize);
+            if (resultSize > 0) {
+                changed(memberId, null, money);
+            }
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
         } finally{
             close(con, pstmt, null); // 쿼리 실행 후 리소스(Connection,PreparedStatement)를 정리
         }
@@ -105,7 +279,17 @@ public class MemberRepositoryV4_1 implements MemberRepository {
     // 회원 삭제
     @Override
     public void delete(String memberId){
-        String sql = "delete from member where member_id =?";
+        if (needsLocalTransaction()) {
+            localTransaction.executeWithoutResult(status -> delete(memberId));
+            return;
+        }
+        MemberIdentityMap identityMap = identityMap();
+        Integer oldMoney = knownMoney(identityMap, memberId);
+        if (identityMap != null) {
+            identityMap.removed(memberId);
+        }
+
+        String sql = DELETE_SQL;
 
         Connection con = null;
         PreparedStatement pstmt = null;
@@ -113,15 +297,213 @@ public class MemberRepositoryV4_1 implements MemberRepository {
         try {
             con = getConnection();
             pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
             pstmt.setString(1,memberId);
-            pstmt.executeUpdate();
+            if (pstmt.executeUpdate() > 0) {
+                changed(memberId, oldMoney, null);
+            }
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
         } finally{
             close(con, pstmt, null);
         }
     }
 
+    /**
+     * 저장 또는 변경 : merge 한번으로 처리 (findById + save/update 사이에 다른 트랜잭션이 끼어들 틈이 없다)
+     * 트랜잭션 안에서 아직 반영되지 않은 update 가 있으면 버린다 (merge 가 마지막 값)
+     */
+    @Override
+    public Member saveOrUpdate(Member member) {
+        if (needsLocalTransaction()) {
+            return localTransaction.execute(status -> saveOrUpdate(member));
+        }
+        MemberIdentityMap identityMap = identityMap();
+        Integer oldMoney = knownMoney(identityMap, member.getMemberId());
+
+        String sql = SAVE_OR_UPDATE_SQL;
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, member.getMemberId());
+            pstmt.setInt(2, member.getMoney());
+            pstmt.executeUpdate();
+
+            if (identityMap != null) {
+                identityMap.removed(member.getMemberId());
+                identityMap.loaded(new Member(member.getMemberId(), member.getMoney()));
+            }
+            changed(member.getMemberId(), oldMoney, member.getMoney());
+            return member;
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 조건부 차감 : 잔액 확인 + 차감 + 변경 후 잔액 조회를 한번의 쿼리로 처리 (H2 final table)
+     * 트랜잭션 안에서 아직 반영되지 않은 update 가 있으면 먼저 반영한다
+     */
+    @Override
+    public OptionalInt debitIfSufficient(String memberId, int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("debit amount must be positive amount=" + amount);
+        }
+        if (needsLocalTransaction()) {
+            return localTransaction.execute(status -> debitIfSufficient(memberId, amount));
+        }
+        MemberIdentityMap identityMap = identityMap();
+        if (identityMap != null && identityMap.isDirty(memberId)) {
+            flush(identityMap);
+        }
+
+        String sql = DEBIT_SQL;
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setInt(1, amount);
+            pstmt.setString(2, memberId);
+            pstmt.setInt(3, amount);
+
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return OptionalInt.empty();
+            }
+            int money = rs.getInt(1);
+            if (identityMap != null) {
+                identityMap.loaded(new Member(memberId, money));
+            }
+            changed(memberId, money + amount, money);
+            return OptionalInt.of(money);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    /**
+     * 변경 이벤트 기록 : 트랜잭션 단위로 모아서 커밋 직전 / 커밋 후 전달
+     * 이벤트가 있으면 변경은 항상 트랜잭션 안에서 실행된다 (needsLocalTransaction)
+     */
+    private void changed(String memberId, Integer oldMoney, Integer newMoney) {
+        if (changePublisher == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("member change outside transaction memberId=" + memberId);
+        }
+        MemberChangeSynchronization.current(this, changePublisher).add(memberId, oldMoney, newMoney);
+    }
+
+    private boolean needsLocalTransaction() {
+        return changePublisher != null && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    // 읽기/쓰기 트랜잭션에서 읽은 row 는 커밋까지 잠근다 (update 가 미뤄지므로 조회 시점에 잠금)
+    private boolean lockOnRead(MemberIdentityMap identityMap) {
+        return identityMap != null && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    // 트랜잭션 안에서 이미 읽은 회원의 현재 금액. 모르면 null
+    private Integer knownMoney(MemberIdentityMap identityMap, String memberId) {
+        if (identityMap == null) {
+            return null;
+        }
+        Member member = identityMap.get(memberId);
+        return member == null ? null : member.getMoney();
+    }
+
+    // 커밋 직전 : dirty 상태를 하나의 배치로 반영
+    private void flush(MemberIdentityMap identityMap) {
+        Map<String, Integer> dirty = identityMap.drainDirty();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        String sql = UPDATE_SQL;
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            for (Map.Entry<String, Integer> entry : dirty.entrySet()) {
+                pstmt.setInt(1, entry.getValue());
+                pstmt.setString(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            int[] resultSizes = pstmt.executeBatch();
+            log.info("flush size={}, resultSize={}", dirty.size(), resultSizes.length);
+            int i = 0;
+            for (String memberId : dirty.keySet()) {
+                if (resultSizes[i++] == 0) { // SUCCESS_NO_INFO(-2) 는 확인할 수 없으므로 통과
+                    throw new MyDbException("member not found, update failed memberId=" + memberId);
+                }
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    /**
+     * 현재 트랜잭션의 identity map. 트랜잭션 밖이면 null
+     * REQUIRES_NEW 등으로 커넥션이 바뀐 안쪽 트랜잭션에서는 바깥 map 을 쓰지 않고 바로 실행한다
+     */
+    private MemberIdentityMap identityMap() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Object connectionHolder = TransactionSynchronizationManager.getResource(dataSource);
+        if (!(connectionHolder instanceof ConnectionHolder)) {
+            return null;
+        }
+        MemberIdentityMap identityMap = (MemberIdentityMap) TransactionSynchronizationManager.getResource(this);
+        if (identityMap != null) {
+            return identityMap.isOwnedBy(connectionHolder) ? identityMap : null;
+        }
+
+        MemberIdentityMap created = new MemberIdentityMap((ConnectionHolder) connectionHolder);
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                flush(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberRepositoryV4_1.this);
+            }
+        });
+        return created;
+    }
+
+    // 적용한 마감 시각/트랜잭션 timeout 이 지나서 난 쿼리 timeout 만 구분 (H2 lock 대기 timeout 등은 MyDbException)
+    private MyDbException translate(SQLException e) {
+        if (e instanceof SQLTimeoutException && DeadlineContext.isExceeded(dataSource)) {
+            return new MyDeadlineExceededException(e);
+        }
+        return new MyDbException(e);
+    }
+
     private void close(Connection con, Statement stmt, ResultSet rs){
         JdbcUtils.closeResultSet(rs);
         JdbcUtils.closeStatement(stmt);
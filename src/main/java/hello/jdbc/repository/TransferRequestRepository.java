@@ -0,0 +1,97 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import hello.jdbc.support.DeadlineContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.*;
+
+/**
+ * 처리된 이체 요청 키 (멱등성 키) 저장소
+ * 키는 primary key(unique index) 로 저장되어 같은 요청이 두번 처리되지 않는다
+ *
+ * create table transfer_request (
+ *     request_id varchar(64) primary key,
+ *     created_at timestamp default current_timestamp not null
+ * );
+ */
+@Slf4j
+public class TransferRequestRepository {
+
+    // H2 중복 키 오류 코드
+    private static final int DUPLICATE_KEY_ERROR_CODE = 23505;
+
+    private final DataSource dataSource;
+
+    public TransferRequestRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // 이미 처리된 키면 MyDuplicateKeyException
+    public void save(String requestId) {
+        String sql = "insert into transfer_request(request_id) values (?)";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, requestId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getErrorCode() == DUPLICATE_KEY_ERROR_CODE) {
+                throw new MyDuplicateKeyException(e);
+            }
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    public boolean existsById(String requestId) {
+        String sql = "select 1 from transfer_request where request_id = ?";
+
+        Connection con = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            con = getConnection();
+            pstmt = con.prepareStatement(sql);
+            DeadlineContext.applyQueryTimeout(pstmt, dataSource);
+            pstmt.setString(1, requestId);
+            rs = pstmt.executeQuery();
+            return rs.next();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    private MyDbException translate(SQLException e) {
+        if (e instanceof SQLTimeoutException && DeadlineContext.isExceeded(dataSource)) {
+            return new MyDeadlineExceededException(e);
+        }
+        return new MyDbException(e);
+    }
+
+    private void close(Connection con, Statement stmt, ResultSet rs) {
+        JdbcUtils.closeResultSet(rs);
+        JdbcUtils.closeStatement(stmt);
+        DataSourceUtils.releaseConnection(con, dataSource);
+    }
+
+    private Connection getConnection() {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        log.info("get connection={}, class={}", con, con.getClass());
+        return con;
+    }
+}
@@ -0,0 +1,21 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 회로 차단 상태라 커넥션 획득을 시도하지 않음 (CircuitBreakerDataSource)
+ */
+public class MyCircuitOpenException extends MyDbException{
+    public MyCircuitOpenException() {
+    }
+
+    public MyCircuitOpenException(String message) {
+        super(message);
+    }
+
+    public MyCircuitOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MyCircuitOpenException(Throwable cause) {
+        super(cause);
+    }
+}
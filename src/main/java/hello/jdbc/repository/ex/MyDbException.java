@@ -1,6 +1,22 @@
 package hello.jdbc.repository.ex;
 
+/**
+ * stackless 모드에서는 스택 트레이스를 채우지 않는다 (하위 예외 포함)
+ * 예외를 흐름 제어에 쓰는 경로에서 생성 비용의 대부분은 스택 트레이스 수집이다
+ * -Dhello.jdbc.stackless-exceptions=true 또는 MyDbException.setStackless(true)
+ */
 public class MyDbException extends RuntimeException{
+
+    private static volatile boolean stackless = Boolean.getBoolean("hello.jdbc.stackless-exceptions");
+
+    public static boolean isStackless() {
+        return stackless;
+    }
+
+    public static void setStackless(boolean stackless) {
+        MyDbException.stackless = stackless;
+    }
+
     public MyDbException() {
     }
 
@@ -15,4 +31,9 @@ public class MyDbException extends RuntimeException{
     public MyDbException(Throwable cause) {
         super(cause);
     }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return stackless ? this : super.fillInStackTrace();
+    }
 }
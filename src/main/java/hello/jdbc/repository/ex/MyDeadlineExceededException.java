@@ -0,0 +1,21 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 요청 마감 시각(Deadline)을 넘김
+ */
+public class MyDeadlineExceededException extends MyDbException{
+    public MyDeadlineExceededException() {
+    }
+
+    public MyDeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public MyDeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MyDeadlineExceededException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,21 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 과부하로 DB 작업을 받지 않음 (AdmissionController)
+ */
+public class MyOverloadException extends MyDbException{
+    public MyOverloadException() {
+    }
+
+    public MyOverloadException(String message) {
+        super(message);
+    }
+
+    public MyOverloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MyOverloadException(Throwable cause) {
+        super(cause);
+    }
+}
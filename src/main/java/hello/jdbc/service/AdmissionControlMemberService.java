@@ -0,0 +1,30 @@
+package hello.jdbc.service;
+
+import hello.jdbc.admission.AdmissionController;
+import hello.jdbc.support.Deadline;
+import hello.jdbc.support.DeadlineContext;
+
+/**
+ * MemberServiceV4 계좌이체 진입 제어
+ * 트랜잭션(커넥션 획득) 전에 AdmissionController 를 통과해야 한다. 과부하면 MyOverloadException
+ */
+public class AdmissionControlMemberService {
+
+    private final MemberServiceV4 memberService; // 트랜잭션 프록시
+    private final AdmissionController admissionController;
+
+    public AdmissionControlMemberService(MemberServiceV4 memberService, AdmissionController admissionController) {
+        this.memberService = memberService;
+        this.admissionController = admissionController;
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        admissionController.run(() -> memberService.accountTransfer(fromId, toId, money));
+    }
+
+    public void accountTransfer(String fromId, String toId, int money, Deadline deadline) {
+        // 같은 deadline 을 트랜잭션 / 쿼리 timeout 에도 전파
+        admissionController.run(deadline,
+                () -> DeadlineContext.run(deadline, () -> memberService.accountTransfer(fromId, toId, money)));
+    }
+}
@@ -0,0 +1,300 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.event.MemberChangeOutbox;
+import hello.jdbc.event.MemberChanged;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 계좌이체 group commit
+ * 동시에 들어온 이체 요청을 짧은 시간(window) 또는 batch 크기만큼 모아 하나의 트랜잭션에서 처리한다
+ * - 관련 회원 잔액을 in (...) 쿼리 한번으로 읽고, 변경된 잔액을 배치 update 로 기록한 뒤 한번만 커밋한다
+ * - 각 요청자는 자신의 CompletableFuture 로 결과를 받는다
+ * - 검증 실패는 해당 요청만 실패시키고, 회원이 없거나 배치 자체가 실패하면 해당 요청들을 MemberServiceV4 로 하나씩 다시 실행한다
+ * - 대기 큐는 queueCapacity 로 제한한다. 가득 차면 기다리지 않고 요청을 실패시킨다
+ * - MemberChangeOutbox 를 넘기면 배치 트랜잭션에 변경된 회원의 이벤트도 기록한다 (개별 재실행은 MemberServiceV4 의 repository 가 기록)
+ * - close() 는 이미 받은 요청까지 처리하고, 처리하지 못한 요청과 close 이후의 요청은 실패시킨다
+ */
+@Slf4j
+public class GroupCommitTransferExecutor implements AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    private final DataSource dataSource;
+    private final MemberServiceV4 memberService; // 개별 재실행용 (트랜잭션 프록시)
+    private final MemberChangeOutbox changeOutbox; // null 이면 이벤트 없음
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final BlockingQueue<TransferRequest> queue;
+    private final Thread collector;
+    private final AtomicInteger submitting = new AtomicInteger(); // running 확인 후 큐에 넣는 중인 스레드 수
+    private volatile boolean running;
+
+    public GroupCommitTransferExecutor(DataSource dataSource, MemberServiceV4 memberService,
+                                       int maxBatchSize, Duration window) {
+        this(dataSource, memberService, maxBatchSize, window, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public GroupCommitTransferExecutor(DataSource dataSource, MemberServiceV4 memberService,
+                                       int maxBatchSize, Duration window, int queueCapacity) {
+        this(dataSource, memberService, null, maxBatchSize, window, queueCapacity);
+    }
+
+    public GroupCommitTransferExecutor(DataSource dataSource, MemberServiceV4 memberService, MemberChangeOutbox changeOutbox,
+                                       int maxBatchSize, Duration window, int queueCapacity) {
+        this.dataSource = dataSource;
+        this.memberService = memberService;
+        this.changeOutbox = changeOutbox;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.collector = new Thread(this::runCollector, "group-commit");
+        this.collector.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        collector.start();
+    }
+
+    public CompletableFuture<Void> submit(String fromId, String toId, int money) {
+        TransferRequest request = new TransferRequest(fromId, toId, money);
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                request.future.completeExceptionally(new IllegalStateException("group commit executor is not running"));
+            } else if (!queue.offer(request)) {
+                request.future.completeExceptionally(new IllegalStateException("group commit executor queue full"));
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return request.future;
+    }
+
+    private void runCollector() {
+        List<TransferRequest> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TransferRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    TransferRequest next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                execute(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("group commit error", e);
+                batch.forEach(request -> request.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void execute(List<TransferRequest> batch) {
+        List<TransferRequest> retryAlone = new ArrayList<>();
+        List<TransferRequest> applied = new ArrayList<>(batch.size());
+
+        Connection con = null;
+        try {
+            con = dataSource.getConnection();
+            con.setAutoCommit(false); // 트랜잭션 시작
+
+            Map<String, Integer> balances = findMoney(con, ids(batch));
+            Map<String, Integer> original = new HashMap<>(balances);
+            Set<String> changed = new LinkedHashSet<>();
+            for (TransferRequest request : batch) {
+                Integer fromMoney = balances.get(request.fromId);
+                Integer toMoney = balances.get(request.toId);
+                if (fromMoney == null || toMoney == null) {
+                    retryAlone.add(request); // 개별 실행에서 원래 예외가 나도록
+                    continue;
+                }
+                try {
+                    MemberServiceV4.validation(new Member(request.toId, toMoney));
+                } catch (IllegalStateException e) {
+                    request.future.completeExceptionally(e); // 해당 요청만 실패
+                    continue;
+                }
+                balances.put(request.fromId, balances.get(request.fromId) - request.money);
+                balances.put(request.toId, balances.get(request.toId) + request.money);
+                changed.add(request.fromId);
+                changed.add(request.toId);
+                applied.add(request);
+            }
+
+            updateMoney(con, changed, balances);
+            if (changeOutbox != null) {
+                changeOutbox.append(con, events(changed, original, balances));
+            }
+            con.commit(); // 배치 전체를 한번에 커밋
+            applied.forEach(request -> request.future.complete(null));
+        } catch (SQLException | RuntimeException e) {
+            rollback(con);
+            // 커넥션 획득 실패처럼 배치를 다 보기 전에 실패한 경우도 포함해서, 아직 결과가 없는 요청은 모두 다시 실행
+            retryAlone.clear();
+            for (TransferRequest request : batch) {
+                if (!request.future.isDone()) {
+                    retryAlone.add(request);
+                }
+            }
+            log.warn("group commit failed, retry {} requests individually", retryAlone.size(), e);
+        } finally {
+            release(con);
+        }
+
+        for (TransferRequest request : retryAlone) {
+            try {
+                memberService.accountTransfer(request.fromId, request.toId, request.money);
+                request.future.complete(null);
+            } catch (RuntimeException e) {
+                request.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Set<String> ids(List<TransferRequest> batch) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (TransferRequest request : batch) {
+            ids.add(request.fromId);
+            ids.add(request.toId);
+        }
+        return ids;
+    }
+
+    private Map<String, Integer> findMoney(Connection con, Collection<String> memberIds) throws SQLException {
+        StringBuilder sql = new StringBuilder("select member_id, money from member where member_id in (");
+        for (int i = 0; i < memberIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") for update"); // 배치가 커밋될 때까지 다른 writer 차단
+
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            pstmt = con.prepareStatement(sql.toString());
+            int index = 1;
+            for (String memberId : memberIds) {
+                pstmt.setString(index++, memberId);
+            }
+            rs = pstmt.executeQuery();
+            Map<String, Integer> balances = new HashMap<>();
+            while (rs.next()) {
+                balances.put(rs.getString("member_id"), rs.getInt("money"));
+            }
+            return balances;
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(pstmt);
+        }
+    }
+
+    private void updateMoney(Connection con, Set<String> memberIds, Map<String, Integer> balances) throws SQLException {
+        if (memberIds.isEmpty()) {
+            return;
+        }
+        String sql = "update member set money=? where member_id=?";
+
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = con.prepareStatement(sql);
+            for (String memberId : memberIds) {
+                pstmt.setInt(1, balances.get(memberId));
+                pstmt.setString(2, memberId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        } finally {
+            JdbcUtils.closeStatement(pstmt);
+        }
+    }
+
+    private List<MemberChanged> events(Set<String> changed, Map<String, Integer> original, Map<String, Integer> balances) {
+        String transactionId = UUID.randomUUID().toString();
+        List<MemberChanged> events = new ArrayList<>(changed.size());
+        for (String memberId : changed) {
+            events.add(new MemberChanged(memberId, original.get(memberId), balances.get(memberId), transactionId));
+        }
+        return events;
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                log.info("error", e);
+            }
+        }
+    }
+
+    private void release(Connection con) {
+        if (con != null) {
+            try {
+                con.setAutoCommit(true); // 커넥션 풀 고려
+                con.close();
+            } catch (Exception e) {
+                log.info("error", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        collector.join();
+        // running 을 true 로 본 submit 이 큐에 넣기를 마칠 때까지 기다린 뒤, collector 가 처리하지 못한 요청을 실패시킨다
+        while (submitting.get() != 0) {
+            Thread.onSpinWait();
+        }
+        List<TransferRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(request -> request.future.completeExceptionally(
+                new IllegalStateException("group commit executor closed")));
+    }
+
+    private static final class TransferRequest {
+        private final String fromId;
+        private final String toId;
+        private final int money;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private TransferRequest(String fromId, String toId, int money) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.money = money;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.TransferRequestRepository;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import hello.jdbc.support.RecentKeyFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 멱등성 키를 사용하는 계좌이체
+ * 클라이언트가 타임아웃 후 같은 requestId 로 재시도해도 이체는 한번만 반영된다
+ *
+ * 1. 최근 처리된 키 -> DB 조회 없이 거절
+ * 2. Bloom filter 에 없는 키 -> 처음 보는 키이므로 사전 조회 없이 바로 이체
+ * 3. Bloom filter 에 있는 키 -> 오탐일 수 있으므로 DB 로 확인
+ * 키 저장과 이체는 같은 트랜잭션에서 실행되고, 최종 중복 판단은 unique index 가 한다
+ */
+@Slf4j
+public class IdempotentTransferService {
+
+    private final MemberServiceV4 memberService;
+    private final TransferRequestRepository transferRequestRepository;
+    private final TransactionTemplate txTemplate;
+    private final RecentKeyFilter processedKeys;
+
+    public IdempotentTransferService(MemberServiceV4 memberService,
+                                     TransferRequestRepository transferRequestRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     RecentKeyFilter processedKeys) {
+        this.memberService = memberService;
+        this.transferRequestRepository = transferRequestRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.processedKeys = processedKeys;
+    }
+
+    /**
+     * @return 이번 호출에서 이체가 반영되었으면 true, 이미 처리된 요청이면 false
+     */
+    public boolean accountTransfer(String requestId, String fromId, String toId, int money) {
+        if (processedKeys.isRecent(requestId)) {
+            log.info("duplicate transfer request (recent) requestId={}", requestId);
+            return false;
+        }
+        if (processedKeys.mightContain(requestId) && transferRequestRepository.existsById(requestId)) {
+            log.info("duplicate transfer request (db) requestId={}", requestId);
+            processedKeys.add(requestId);
+            return false;
+        }
+
+        try {
+            txTemplate.executeWithoutResult(status -> {
+                transferRequestRepository.save(requestId);
+                memberService.accountTransfer(fromId, toId, money); // 기존 트랜잭션에 참여
+            });
+        } catch (MyDuplicateKeyException e) {
+            // 동시에 들어온 재시도 요청
+            log.info("duplicate transfer request (unique) requestId={}", requestId);
+            processedKeys.add(requestId);
+            return false;
+        }
+
+        processedKeys.add(requestId);
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.LedgerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * 원장 기반 계좌이체
+ * member row 를 update 하지 않고 journal 에 출금/입금 쌍을 append 만 한다
+ * 잔액은 스냅샷 + journal tail 로 계산하고, takeSnapshot() 으로 커밋된 tail 을 주기적으로 압축한다
+ * 이체 전에 같은 트랜잭션에서 두 계좌가 있는지, 출금 계좌 잔액이 충분한지 확인한다 (출금 계좌 row 를 잠근 뒤 확인)
+ */
+@Slf4j
+public class LedgerService {
+
+    private final LedgerRepository ledgerRepository;
+
+    public LedgerService(LedgerRepository ledgerRepository) {
+        this.ledgerRepository = ledgerRepository;
+    }
+
+    public void openAccount(String memberId, int money) {
+        ledgerRepository.openAccount(memberId, money);
+    }
+
+    @Transactional
+    public String accountTransfer(String fromId, String toId, int money) {
+        if (money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 합니다. money=" + money);
+        }
+        if (!ledgerRepository.existsAccount(toId)) {
+            throw new NoSuchElementException("ledger account not found memberId=" + toId);
+        }
+        int fromMoney = ledgerRepository.lockBalance(fromId);
+        if (fromMoney < money) {
+            throw new IllegalStateException("잔액 부족 memberId=" + fromId);
+        }
+        String transferId = UUID.randomUUID().toString();
+        ledgerRepository.appendTransfer(transferId, fromId, toId, money);
+        return transferId;
+    }
+
+    public int getBalance(String memberId) {
+        return ledgerRepository.findBalance(memberId);
+    }
+
+    // 스냅샷 압축 (표시와 반영을 하나의 트랜잭션으로). 반영된 entry 수를 반환
+    @Transactional
+    public int takeSnapshot() {
+        return ledgerRepository.compact();
+    }
+}
@@ -0,0 +1,49 @@
+package hello.jdbc.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 원장 스냅샷 주기 실행
+ * journal tail 이 길어지면 잔액 조회가 느려지므로 일정 주기로 LedgerService.takeSnapshot() 을 호출한다
+ */
+@Slf4j
+public class LedgerSnapshotScheduler implements AutoCloseable {
+
+    private final LedgerService ledgerService;
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+
+    public LedgerSnapshotScheduler(LedgerService ledgerService, Duration interval) {
+        this.ledgerService = ledgerService;
+        this.interval = interval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::snapshot, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void snapshot() {
+        try {
+            int resultSize = ledgerService.takeSnapshot();
+            log.info("ledger snapshot resultSize={}", resultSize);
+        } catch (Exception e) {
+            log.error("ledger snapshot error", e); // 예외가 나가면 이후 스케줄이 중단되므로 여기서 처리
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -1,30 +1,66 @@
 package hello.jdbc.service;
 
+import hello.jdbc.audit.TransferAudit;
+import hello.jdbc.audit.TransferAuditWriter;
 import hello.jdbc.domain.Member;
 import hello.jdbc.repository.MemberRepository;
-import hello.jdbc.repository.MemberRepositoryV3;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 예외 누수 문제 해결
  * SQLException 제거
  *
  * MemberRepository 인터페이스에 의존
+ *
+ * TransferEngine 을 넘기면 이체를 메모리 엔진에 위임한다
+ * 이 모드에서는 @Transactional 이 커넥션을 미리 잡지 않도록 DataSource 를 LazyConnectionDataSourceProxy 로 감싸서 사용한다
+ *
+ * TransferAuditWriter 를 넘기면 이체마다 감사 기록을 남긴다
+ * 기록은 트랜잭션이 끝난 뒤(afterCompletion) 실제 커밋/롤백 결과로 남긴다. 바깥 트랜잭션에 참여하면 바깥 트랜잭션이 끝날 때 기록
 */
 @Slf4j
 public class MemberServiceV4 {
 
     private final MemberRepository memberRepository; // 커넥션을 넘김
+    private final TransferEngine transferEngine; // null 이면 DB 트랜잭션에서 직접 처리
+    private final TransferAuditWriter auditWriter; // null 이면 감사 기록 없음
 
     public MemberServiceV4(MemberRepository memberRepository) {
+        this(memberRepository, null);
+    }
+
+    public MemberServiceV4(MemberRepository memberRepository, TransferEngine transferEngine) {
+        this(memberRepository, transferEngine, null);
+    }
+
+    public MemberServiceV4(MemberRepository memberRepository, TransferEngine transferEngine, TransferAuditWriter auditWriter) {
         this.memberRepository = memberRepository;
+        this.transferEngine = transferEngine;
+        this.auditWriter = auditWriter;
     }
 
     @Transactional
-    public void accountTransfer(String fromId, String toId, int money) throws SQLException {
+    public void accountTransfer(String fromId, String toId, int money) {
+        long start = System.nanoTime();
+        try {
+            transfer(fromId, toId, money);
+        } catch (Throwable e) { // Error 도 실패로 기록
+            audit(fromId, toId, money, start, e);
+            throw e;
+        }
+        audit(fromId, toId, money, start, null);
+    }
+
+    private void transfer(String fromId, String toId, int money) {
+        if (transferEngine != null) {
+            transferEngine.transfer(fromId, toId, money); // journal 까지 끝나면 반환
+            return;
+        }
         // 비즈니스 로직
         bizLogic(fromId, toId, money);
     }
@@ -39,7 +75,39 @@ public class MemberServiceV4 {
     }
 
 
-    private void validation(Member toMember) {
+    // 반환했더라도 커밋이 실패하면 SUCCESS 가 아니므로 트랜잭션이 끝난 뒤 결과를 정한다
+    private void audit(String fromId, String toId, int money, long start, Throwable failure) {
+        if (auditWriter == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(fromId, toId, money, start, failure == null ? TransferAudit.SUCCESS : failure.getClass().getSimpleName());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                String result;
+                if (failure != null) {
+                    result = failure.getClass().getSimpleName();
+                } else if (status == STATUS_COMMITTED) {
+                    result = TransferAudit.SUCCESS;
+                } else if (status == STATUS_ROLLED_BACK) {
+                    result = TransferAudit.ROLLED_BACK;
+                } else {
+                    result = TransferAudit.UNKNOWN;
+                }
+                record(fromId, toId, money, start, result);
+            }
+        });
+    }
+
+    private void record(String fromId, String toId, int money, long start, String result) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        auditWriter.record(new TransferAudit(fromId, toId, money, result, latencyMicros, System.currentTimeMillis()));
+    }
+
+    static void validation(Member toMember) {
         if (toMember.getMemberId().equals("ex")){
             throw new IllegalStateException("이체중 예외 발생");
         }
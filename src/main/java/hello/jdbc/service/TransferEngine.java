@@ -0,0 +1,262 @@
+package hello.jdbc.service;
+
+import hello.jdbc.cache.MemberMoneyTable;
+import hello.jdbc.domain.Member;
+import hello.jdbc.event.MemberChangeOutbox;
+import hello.jdbc.event.MemberChanged;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.support.MpscRingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 메모리 잔액 + 단일 writer 이체 엔진
+ * 이체 요청은 링 버퍼에 쌓이고, writer 스레드 하나가 순서대로 잔액 검증/반영을 한다 (락 경합 없음)
+ * 한번에 꺼낸 요청들의 최종 잔액을 하나의 JDBC 트랜잭션에서 배치 update 로 기록(journal)한 뒤에 응답한다
+ * journal 이 실패하면 해당 배치의 메모리 잔액을 되돌리고 배치 전체를 실패 처리한다
+ * 검증 규칙은 DB 트랜잭션 경로와 같다 (MemberServiceV4.validation)
+ * close() 는 이미 받은 요청까지 처리하고, 처리하지 못한 요청과 close 이후의 요청은 실패시킨다
+ *
+ * MemberChangeOutbox 를 넘기면 journal 트랜잭션에 변경된 회원의 이벤트도 기록한다 (캐시 스냅샷이 변경을 알 수 있도록)
+ *
+ * 주의! 엔진이 member 잔액의 유일한 writer 라고 가정한다. 엔진 밖에서 member.money 를 변경하면 안된다
+ */
+@Slf4j
+public class TransferEngine implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final DataSource dataSource;
+    private final MemberRepository memberRepository;
+    private final MemberChangeOutbox changeOutbox; // null 이면 이벤트 없음
+    private final MemberMoneyTable balances;
+    private final MpscRingBuffer<TransferCommand> ring;
+    private final int maxBatchSize;
+    private final Thread writer;
+    private final AtomicInteger submitting = new AtomicInteger(); // running 확인 후 ring 에 넣는 중인 스레드 수
+    private volatile boolean running;
+
+    public TransferEngine(DataSource dataSource, MemberRepository memberRepository,
+                          int expectedMembers, int ringCapacity, int maxBatchSize) {
+        this(dataSource, memberRepository, null, expectedMembers, ringCapacity, maxBatchSize);
+    }
+
+    public TransferEngine(DataSource dataSource, MemberRepository memberRepository, MemberChangeOutbox changeOutbox,
+                          int expectedMembers, int ringCapacity, int maxBatchSize) {
+        this.dataSource = dataSource;
+        this.memberRepository = memberRepository;
+        this.changeOutbox = changeOutbox;
+        this.balances = new MemberMoneyTable(expectedMembers);
+        this.ring = new MpscRingBuffer<>(ringCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::runWriter, "transfer-engine");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        writer.start();
+    }
+
+    public CompletableFuture<Void> submit(String fromId, String toId, int money) {
+        TransferCommand command = new TransferCommand(fromId, toId, money);
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                command.future.completeExceptionally(new IllegalStateException("transfer engine is not running"));
+            } else if (!ring.offer(command)) {
+                command.future.completeExceptionally(new IllegalStateException("transfer engine queue full"));
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return command.future;
+    }
+
+    // 동기 호출용. 실패 원인 예외를 그대로 던진다
+    public void transfer(String fromId, String toId, int money) {
+        try {
+            submit(fromId, toId, money).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // 엔진이 알고 있는 잔액. 아직 로딩하지 않은 회원이면 MemberMoneyTable.MISSING
+    public long getMoney(String memberId) {
+        return balances.get(memberId);
+    }
+
+    private void runWriter() {
+        List<TransferCommand> batch = new ArrayList<>(maxBatchSize);
+        while (running || !ring.isEmpty()) {
+            ring.drain(batch::add, maxBatchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(List<TransferCommand> batch) {
+        Map<String, Integer> undo = new LinkedHashMap<>(); // 이번 배치에서 변경된 회원의 이전 잔액
+        List<TransferCommand> accepted = new ArrayList<>(batch.size());
+
+        for (TransferCommand command : batch) {
+            try {
+                apply(command, undo);
+                accepted.add(command);
+            } catch (RuntimeException e) {
+                command.future.completeExceptionally(e); // 해당 요청만 실패
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            journal(undo);
+        } catch (SQLException e) {
+            rollback(undo, accepted, new MyDbException(e));
+            return;
+        } catch (RuntimeException e) {
+            rollback(undo, accepted, e);
+            return;
+        }
+        for (TransferCommand command : accepted) {
+            command.future.complete(null);
+        }
+    }
+
+    private void apply(TransferCommand command, Map<String, Integer> undo) {
+        if (command.money <= 0) {
+            throw new IllegalArgumentException("이체 금액은 0보다 커야 합니다. money=" + command.money);
+        }
+        int fromMoney = load(command.fromId);
+        int toMoney = load(command.toId);
+        if (fromMoney < command.money) {
+            throw new IllegalStateException("잔액 부족 memberId=" + command.fromId);
+        }
+        MemberServiceV4.validation(new Member(command.toId, toMoney)); // 메모리를 바꾸기 전에 검증
+
+        undo.putIfAbsent(command.fromId, fromMoney);
+        undo.putIfAbsent(command.toId, toMoney);
+        balances.put(command.fromId, fromMoney - command.money);
+        balances.put(command.toId, balance(command.toId) + command.money); // fromId == toId 인 경우 고려
+    }
+
+    // 처음 보는 회원은 DB 에서 한번 읽어 메모리에 올린다
+    private int load(String memberId) {
+        long money = balances.get(memberId);
+        if (money != MemberMoneyTable.MISSING) {
+            return (int) money;
+        }
+        Member member = memberRepository.findById(memberId);
+        if (!balances.put(memberId, member.getMoney())) {
+            throw new IllegalStateException("transfer engine capacity exceeded memberId=" + memberId);
+        }
+        return member.getMoney();
+    }
+
+    private int balance(String memberId) {
+        return (int) balances.get(memberId);
+    }
+
+    private void journal(Map<String, Integer> changed) throws SQLException {
+        String sql = "update member set money=? where member_id=?";
+
+        Connection con = dataSource.getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            con.setAutoCommit(false);
+            pstmt = con.prepareStatement(sql);
+            for (String memberId : changed.keySet()) {
+                pstmt.setInt(1, balance(memberId));
+                pstmt.setString(2, memberId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            if (changeOutbox != null) {
+                changeOutbox.append(con, events(changed));
+            }
+            con.commit();
+        } catch (SQLException | RuntimeException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            JdbcUtils.closeStatement(pstmt);
+            release(con);
+        }
+    }
+
+    // changed 는 배치 전 잔액
+    private List<MemberChanged> events(Map<String, Integer> changed) {
+        String transactionId = UUID.randomUUID().toString();
+        List<MemberChanged> events = new ArrayList<>(changed.size());
+        changed.forEach((memberId, oldMoney) -> events.add(new MemberChanged(memberId, oldMoney, balance(memberId), transactionId)));
+        return events;
+    }
+
+    private void rollback(Map<String, Integer> undo, List<TransferCommand> accepted, RuntimeException cause) {
+        log.error("transfer engine journal error", cause);
+        undo.forEach(balances::put);
+        for (TransferCommand command : accepted) {
+            command.future.completeExceptionally(cause);
+        }
+    }
+
+    private void release(Connection con) {
+        try {
+            con.setAutoCommit(true); // 커넥션 풀 고려
+            con.close();
+        } catch (Exception e) {
+            log.info("error", e);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        // running 을 true 로 본 submit 이 ring 에 넣기를 마칠 때까지 기다린다
+        // 이후의 submit 은 running=false 를 보고 실패하고, 그 사이 writer 가 끝났으면 남은 요청은 아래에서 실패시킨다
+        while (submitting.get() != 0) {
+            Thread.onSpinWait();
+        }
+        writer.join();
+        ring.drain(command -> command.future.completeExceptionally(
+                new IllegalStateException("transfer engine closed")), Integer.MAX_VALUE);
+    }
+
+    private static final class TransferCommand {
+        private final String fromId;
+        private final String toId;
+        private final int money;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private TransferCommand(String fromId, String toId, int money) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.money = money;
+        }
+    }
+}
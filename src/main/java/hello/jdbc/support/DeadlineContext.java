@@ -0,0 +1,87 @@
+package hello.jdbc.support;
+
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드의 요청 마감 시각
+ * DeadlineContext.call(deadline, () -> memberService.accountTransfer(...)) 처럼 서비스 호출을 감싸면
+ * - DeadlineAwareTransactionManager 가 남은 시간을 트랜잭션 timeout 으로 사용하고
+ * - repository 가 남은 시간을 PreparedStatement.setQueryTimeout 으로 적용한다
+ */
+public abstract class DeadlineContext {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    // 없으면 null
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(Deadline deadline, Supplier<T> work) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(Deadline deadline, Runnable work) {
+        call(deadline, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // 남은 시간(초, 올림)
+    public static int remainingSeconds(Deadline deadline) {
+        return (int) Math.max(1, (deadline.remainingNanos() + 999_999_999) / 1_000_000_000);
+    }
+
+    /**
+     * SQLTimeoutException 이 적용한 timeout 때문인지 확인 (현재 deadline 또는 트랜잭션 timeout 이 이미 지났으면 true)
+     * H2 는 lock 대기 timeout 도 SQLTimeoutException 으로 던지므로 예외 타입만으로는 마감 시각 초과인지 알 수 없다
+     * 적용하는 timeout 은 남은 시간을 초 단위로 올림한 값이라, 그 timeout 으로 끊겼다면 마감 시각은 이미 지나 있다
+     */
+    public static boolean isExceeded(DataSource dataSource) {
+        Deadline deadline = current();
+        if (deadline != null && deadline.isExpired()) {
+            return true;
+        }
+        ConnectionHolder holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+        return holder != null && holder.hasTimeout() && holder.getDeadline().getTime() <= System.currentTimeMillis();
+    }
+
+    /**
+     * 트랜잭션 timeout 과 현재 deadline 중 더 짧은 쪽을 statement 에 적용한다
+     * 이미 마감 시각이 지났으면 쿼리를 보내지 않고 MyDeadlineExceededException
+     */
+    public static void applyQueryTimeout(Statement stmt, DataSource dataSource) throws SQLException {
+        DataSourceUtils.applyTransactionTimeout(stmt, dataSource);
+        Deadline deadline = current();
+        if (deadline == null) {
+            return;
+        }
+        if (deadline.isExpired()) {
+            throw new MyDeadlineExceededException("deadline exceeded before query");
+        }
+        int seconds = remainingSeconds(deadline);
+        int current = stmt.getQueryTimeout();
+        if (current == 0 || seconds < current) {
+            stmt.setQueryTimeout(seconds);
+        }
+    }
+}
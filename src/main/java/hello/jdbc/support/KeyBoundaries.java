@@ -0,0 +1,46 @@
+package hello.jdbc.support;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 키 순서로 chunkSize 건마다 경계 키(각 청크의 마지막 키)를 구한다
+ * 직전 경계 다음부터 인덱스를 chunkSize 건만 읽는 keyset 방식 (where key > ? order by key limit 1 offset chunkSize - 1)
+ * row_number() over (...) 처럼 테이블 전체에 번호를 매기지 않으므로 경계 하나에 chunkSize 건만 읽는다
+ * 경계 키 n 개 => 청크 n + 1 개 (마지막 청크는 끝 제한 없음)
+ */
+public abstract class KeyBoundaries {
+
+    /**
+     * [firstKey, lastKey] 범위의 경계 키 목록 (null 인 경계는 처음부터/끝까지)
+     * table, column 은 SQL 에 그대로 들어가므로 상수만 넘긴다
+     */
+    public static List<String> find(Connection con, String table, String column,
+                                    String firstKey, String lastKey, int chunkSize) throws SQLException {
+        List<String> boundaries = new ArrayList<>();
+        String previous = null;
+        while (true) {
+            // 첫 경계는 하한 조건이 없어서 SQL 이 달라진다
+            KeyRangeCondition range = new KeyRangeCondition(column)
+                    .greaterThan(previous)
+                    .greaterOrEqual(firstKey)
+                    .lessOrEqual(lastKey);
+            String sql = "select " + column + " from " + table + range.toWhereClause()
+                    + " order by " + column + " limit 1 offset ?";
+            try (PreparedStatement pstmt = con.prepareStatement(sql)) {
+                pstmt.setInt(range.bind(pstmt, 1), chunkSize - 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return boundaries; // 남은 키가 chunkSize 건 미만
+                    }
+                    previous = rs.getString(1);
+                    boundaries.add(previous);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package hello.jdbc.support;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 키 구간 where 절
+ * null 인 경계는 조건에서 아예 뺀다. (? is null or key > ?) 형태는 H2 가 인덱스 range 로 바꾸지 못해서 구간마다 전체 scan 이 된다
+ */
+public class KeyRangeCondition {
+
+    private final String column;
+    private final List<String> conditions = new ArrayList<>();
+    private final List<String> parameters = new ArrayList<>();
+
+    public KeyRangeCondition(String column) {
+        this.column = column;
+    }
+
+    public KeyRangeCondition greaterThan(String value) {
+        return add(" > ?", value);
+    }
+
+    public KeyRangeCondition greaterOrEqual(String value) {
+        return add(" >= ?", value);
+    }
+
+    public KeyRangeCondition lessOrEqual(String value) {
+        return add(" <= ?", value);
+    }
+
+    // 경계가 없으면 " where 1 = 1" (뒤에 " and ..." 조건을 이어 붙일 수 있다)
+    public String toWhereClause() {
+        if (conditions.isEmpty()) {
+            return " where 1 = 1";
+        }
+        return " where " + String.join(" and ", conditions);
+    }
+
+    // index 부터 경계 값을 바인딩하고 다음 index 를 반환
+    public int bind(PreparedStatement pstmt, int index) throws SQLException {
+        for (String parameter : parameters) {
+            pstmt.setString(index++, parameter);
+        }
+        return index;
+    }
+
+    private KeyRangeCondition add(String operator, String value) {
+        if (value != null) {
+            conditions.add(column + operator);
+            parameters.add(value);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,72 @@
+package hello.jdbc.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 다중 생산자 / 단일 소비자 링 버퍼 (락 없음)
+ * 생산자는 CAS 로 slot 을 예약하고, 소비자 스레드 하나만 drain() 을 호출한다
+ * 가득 차면 offer() 는 기다리지 않고 false 를 반환한다
+ */
+public class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // 생산자가 예약한 다음 위치
+    private volatile long head; // 소비자만 변경
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long current = tail.get();
+            if (current - head >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(current, current + 1)) {
+                buffer.lazySet((int) current & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 소비자 스레드 전용. 발행이 끝난 원소를 최대 maxElements 개 꺼낸다
+     */
+    public int drain(Consumer<? super E> consumer, int maxElements) {
+        long current = head;
+        int count = 0;
+        while (count < maxElements) {
+            int index = (int) current & mask;
+            E element = buffer.get(index);
+            if (element == null) {
+                break; // 비어 있거나 예약만 되고 아직 기록되지 않음
+            }
+            buffer.lazySet(index, null);
+            head = ++current;
+            count++;
+            consumer.accept(element);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+}
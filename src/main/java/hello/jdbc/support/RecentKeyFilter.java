@@ -0,0 +1,43 @@
+package hello.jdbc.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 최근 처리된 키 필터
+ * 최근 키는 크기가 제한된 집합(LRU)으로 정확히 판별하고, 밀려난 오래된 키는 Bloom filter 로 "있을 수도 있음"만 판별한다
+ */
+public class RecentKeyFilter {
+
+    private final Map<String, Boolean> recentKeys;
+    private final BloomFilter olderKeys;
+
+    public RecentKeyFilter(int recentCapacity, long expectedKeys, double falsePositiveRate) {
+        this.recentKeys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentCapacity;
+            }
+        };
+        this.olderKeys = new BloomFilter(expectedKeys, falsePositiveRate);
+    }
+
+    public void add(String key) {
+        olderKeys.put(key);
+        synchronized (recentKeys) {
+            recentKeys.put(key, Boolean.TRUE);
+        }
+    }
+
+    // 확실히 처리된 키
+    public boolean isRecent(String key) {
+        synchronized (recentKeys) {
+            return recentKeys.containsKey(key);
+        }
+    }
+
+    // false 면 처리된 적 없는 키가 확실하다
+    public boolean mightContain(String key) {
+        return olderKeys.mightContain(key);
+    }
+}
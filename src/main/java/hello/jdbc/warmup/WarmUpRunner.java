@@ -0,0 +1,137 @@
+package hello.jdbc.warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 시작 시 워밍업
+ * ApplicationRunner 는 ApplicationReadyEvent(트래픽 수신 가능 상태) 전에 실행되므로, 워밍업이 끝나야 준비 완료가 된다
+ * 1. 커넥션 풀을 minimumIdle 까지 채우고 각 커넥션을 검증, repository SQL 을 미리 prepare
+ * 2. MemberRepositoryV4_1 / MemberServiceV4 의 주요 경로를 반복 실행해서 JIT 컴파일 유도
+ *    - 조회/변경은 트랜잭션 밖(auto commit)에서 호출한다. 트랜잭션 안에서는 identity map 때문에 SELECT/UPDATE 가 실행되지 않는다
+ *    - 이체는 TransferEngine 없이 만든 워밍업 전용 MemberServiceV4 로 실행하고 커밋한다 (커밋 직전 flush 까지 실행)
+ *    - 실행마다 임의의 워밍업 전용 회원을 만들고 끝나면 삭제한다 (기존 데이터, 동시에 기동하는 다른 인스턴스와 겹치지 않게)
+ *
+ * app.warmup.enabled=true 일 때만 동작한다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true")
+public class WarmUpRunner implements ApplicationRunner {
+
+    static final String WARM_UP_PREFIX = "warm";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final DataSource dataSource;
+    private final TransactionTemplate txTemplate;
+    private final MemberRepository memberRepository;
+    private final MemberServiceV4 memberService;
+    private final int iterations;
+
+    public WarmUpRunner(DataSource dataSource,
+                        PlatformTransactionManager transactionManager,
+                        ObjectProvider<MemberRepository> memberRepository,
+                        @Value("${app.warmup.iterations:2000}") int iterations) {
+        this(dataSource, transactionManager, memberRepository.getIfAvailable(() -> new MemberRepositoryV4_1(dataSource)), iterations);
+    }
+
+    WarmUpRunner(DataSource dataSource, PlatformTransactionManager transactionManager,
+                 MemberRepository memberRepository, int iterations) {
+        this.dataSource = dataSource;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.memberRepository = memberRepository;
+        this.memberService = new MemberServiceV4(memberRepository); // 엔진 없이 DB 트랜잭션 경로
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        try {
+            warmUpPool();
+            warmUpHotPaths();
+        } catch (Exception e) {
+            // 워밍업 실패로 기동을 막지는 않는다
+            log.warn("warm-up failed", e);
+        }
+        log.info("warm-up finished {}ms", System.currentTimeMillis() - start);
+    }
+
+    private void warmUpPool() throws SQLException {
+        int size = minimumIdle();
+        List<Connection> connections = new ArrayList<>(size);
+        try {
+            // 동시에 잡고 있어야 풀이 새 커넥션을 만든다
+            for (int i = 0; i < size; i++) {
+                Connection con = dataSource.getConnection();
+                connections.add(con);
+                if (!con.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("invalid connection " + con);
+                }
+                for (String sql : MemberRepositoryV4_1.statements()) {
+                    try (PreparedStatement pstmt = con.prepareStatement(sql)) {
+                        log.debug("prepared sql={}", sql);
+                    }
+                }
+            }
+        } finally {
+            for (Connection con : connections) {
+                con.close();
+            }
+        }
+        log.info("warm-up pool connections={}", size);
+    }
+
+    private int minimumIdle() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            return Math.max(1, hikari.getMinimumIdle());
+        }
+        return 1;
+    }
+
+    private void warmUpHotPaths() {
+        String suffix = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
+        String memberA = WARM_UP_PREFIX + "a" + suffix.substring(1);
+        String memberB = WARM_UP_PREFIX + "b" + suffix.substring(1);
+
+        memberRepository.save(new Member(memberA, 10000));
+        memberRepository.save(new Member(memberB, 10000));
+        try {
+            for (int i = 0; i < iterations; i++) {
+                // auto commit : 매번 SELECT / UPDATE 실행
+                int money = memberRepository.findById(memberA).getMoney();
+                memberRepository.findByIdOptional(memberB);
+                memberRepository.existsById(memberB);
+                memberRepository.update(memberA, money);
+
+                // 트랜잭션 : 조회 후 커밋 직전 배치 update
+                txTemplate.executeWithoutResult(status -> memberService.accountTransfer(memberA, memberB, 0));
+            }
+        } finally {
+            memberRepository.delete(memberA);
+            memberRepository.delete(memberB);
+        }
+        log.info("warm-up hot paths iterations={}", iterations);
+    }
+}
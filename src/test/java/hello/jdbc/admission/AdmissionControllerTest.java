@@ -0,0 +1,60 @@
+package hello.jdbc.admission;
+
+import hello.jdbc.repository.ex.MyOverloadException;
+import hello.jdbc.support.Deadline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+
+    @Test
+    void admitWithinCapacity() {
+        AdmissionController controller = new AdmissionController(2, 10, Duration.ofSeconds(1));
+        assertThat(controller.call(() -> "ok")).isEqualTo("ok");
+        assertThat(controller.getInFlight()).isZero();
+    }
+
+    @Test
+    void rejectWhenQueueFull() throws InterruptedException {
+        AdmissionController controller = new AdmissionController(1, 0, Duration.ofSeconds(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 유일한 permit 을 점유
+            executor.submit(() -> controller.run(() -> {
+                started.countDown();
+                await(release);
+            }));
+            started.await();
+
+            assertThatThrownBy(() -> controller.run(() -> { }))
+                    .isInstanceOf(MyOverloadException.class);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void rejectExpiredDeadline() {
+        AdmissionController controller = new AdmissionController(1, 10, Duration.ofSeconds(1));
+        assertThatThrownBy(() -> controller.run(Deadline.after(Duration.ZERO), () -> { }))
+                .isInstanceOf(MyOverloadException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package hello.jdbc.audit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TransferAuditWriterTest {
+
+    DataSource dataSource = mock(DataSource.class);
+    Connection connection = mock(Connection.class);
+    PreparedStatement pstmt = mock(PreparedStatement.class);
+
+    @BeforeEach
+    void beforeEach() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(pstmt);
+    }
+
+    @Test
+    void writeInBatches() throws Exception {
+        //given : writer 시작 전에 쌓인 250건
+        TransferAuditWriter writer = new TransferAuditWriter(dataSource, 1024, 100);
+        for (int i = 0; i < 250; i++) {
+            writer.record(audit());
+        }
+
+        //when
+        writer.start();
+        writer.close();
+
+        //then : 100 + 100 + 50
+        assertThat(writer.getWritten()).isEqualTo(250);
+        verify(pstmt, times(250)).addBatch();
+        verify(pstmt, times(3)).executeBatch();
+        verify(connection, times(3)).commit(); // 배치마다 한번 커밋
+        verify(connection, times(3)).close();
+    }
+
+    @Test
+    void dropWhenFull() {
+        TransferAuditWriter writer = new TransferAuditWriter(dataSource, 4, 100);
+
+        for (int i = 0; i < 6; i++) {
+            writer.record(audit());
+        }
+
+        //이체 스레드를 기다리게 하지 않고 버린다
+        assertThat(writer.getDropped()).isEqualTo(2);
+    }
+
+    @Test
+    void countFailedBatch() throws Exception {
+        when(pstmt.executeBatch()).thenThrow(new SQLException("db down"));
+        TransferAuditWriter writer = new TransferAuditWriter(dataSource, 16, 100);
+        writer.record(audit());
+
+        writer.start();
+        writer.close();
+
+        assertThat(writer.getFailed()).isEqualTo(1);
+        assertThat(writer.getWritten()).isZero();
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    void dropAfterClose() throws Exception {
+        TransferAuditWriter writer = new TransferAuditWriter(dataSource, 16, 100);
+        writer.start();
+        writer.close();
+
+        writer.record(audit());
+
+        //close 이후 기록은 저장되지 않고 버린 것으로 센다
+        assertThat(writer.getDropped()).isEqualTo(1);
+        assertThat(writer.getWritten()).isZero();
+    }
+
+    private TransferAudit audit() {
+        return new TransferAudit("memberA", "memberB", 2000, TransferAudit.SUCCESS, 150, System.currentTimeMillis());
+    }
+}
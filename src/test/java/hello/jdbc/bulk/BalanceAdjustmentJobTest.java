@@ -0,0 +1,139 @@
+package hello.jdbc.bulk;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BalanceAdjustmentJobTest {
+
+    public static final String FIRST_ID = "adjA";
+    public static final String LAST_ID = "adjE";
+    public static final String[] MEMBER_IDS = {"adjA", "adjB", "adjC", "adjD", "adjE"};
+
+    HikariDataSource dataSource;
+    MemberRepositoryV4_1 repository;
+    BalanceAdjustmentJob job;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        repository = new MemberRepositoryV4_1(dataSource);
+        job = new BalanceAdjustmentJob(dataSource, 3, 2);
+
+        for (String memberId : MEMBER_IDS) {
+            repository.save(new Member(memberId, 10000));
+        }
+    }
+
+    @AfterEach
+    void afterEach() {
+        for (String memberId : MEMBER_IDS) {
+            repository.delete(memberId);
+        }
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("대상 범위의 회원에게만 청크 단위로 적용된다")
+    void submit() {
+        //when
+        BalanceAdjustmentJob.Result result = job.submit(BalanceAdjustment.PROMOTION, 500, FIRST_ID, LAST_ID);
+
+        //then
+        assertThat(result.isCompleted()).isTrue();
+        assertThat(result.getAppliedChunks()).isEqualTo(3); // 5건 / chunkSize 2
+        assertThat(result.getUpdatedRows()).isEqualTo(MEMBER_IDS.length);
+        for (String memberId : MEMBER_IDS) {
+            assertThat(repository.findById(memberId).getMoney()).isEqualTo(10500);
+        }
+        assertThat(job.findUnfinishedJobIds()).doesNotContain(result.getJobId());
+    }
+
+    @Test
+    @DisplayName("중단 후 다시 실행하면 체크포인트된 청크는 건너뛰고 나머지만 적용한다")
+    void resume() throws SQLException {
+        //given 첫 번째 청크(adjA, adjB)만 커밋된 상태로 중단
+        String jobId = job.plan(BalanceAdjustment.INTEREST, 100, FIRST_ID, LAST_ID); // 1%
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement(
+                     "update balance_job_chunk set status = ? where job_id = ? and chunk_no = 0")) {
+            pstmt.setString(1, BalanceAdjustmentJob.DONE);
+            pstmt.setString(2, jobId);
+            pstmt.executeUpdate();
+        }
+        assertThat(job.findUnfinishedJobIds()).contains(jobId);
+
+        //when
+        BalanceAdjustmentJob.Result result = job.run(jobId);
+        BalanceAdjustmentJob.Result again = job.run(jobId);
+
+        //then
+        assertThat(result.getAppliedChunks()).isEqualTo(2);
+        assertThat(result.isCompleted()).isTrue();
+        assertThat(again.getAppliedChunks()).isZero();
+        assertThat(repository.findById("adjA").getMoney()).isEqualTo(10000);
+        assertThat(repository.findById("adjB").getMoney()).isEqualTo(10000);
+        assertThat(repository.findById("adjC").getMoney()).isEqualTo(10100);
+        assertThat(repository.findById("adjE").getMoney()).isEqualTo(10100);
+    }
+
+    @Test
+    @DisplayName("수수료는 잔액이 부족한 회원에게는 적용하지 않는다")
+    void feeSkipsInsufficientBalance() {
+        //given
+        repository.update("adjC", 300);
+
+        //when
+        BalanceAdjustmentJob.Result result = job.submit(BalanceAdjustment.FEE, 1000, FIRST_ID, LAST_ID);
+
+        //then
+        assertThat(result.getUpdatedRows()).isEqualTo(MEMBER_IDS.length - 1);
+        assertThat(repository.findById("adjA").getMoney()).isEqualTo(9000);
+        assertThat(repository.findById("adjC").getMoney()).isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("수수료와 프로모션 금액이 0 이하면 작업을 만들지 않는다")
+    void rejectNonPositiveAmount() {
+        //given
+        int jobs = job.findUnfinishedJobIds().size();
+
+        //when, then
+        assertThatThrownBy(() -> job.submit(BalanceAdjustment.FEE, -1000, FIRST_ID, LAST_ID))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> job.submit(BalanceAdjustment.PROMOTION, 0, FIRST_ID, LAST_ID))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(job.findUnfinishedJobIds()).hasSize(jobs);
+        assertThat(repository.findById("adjA").getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("이자는 잔액 * 이율이 int 범위를 넘어도 계산된다")
+    void interestOnLargeBalance() {
+        //given
+        repository.update("adjA", 100_000_000);
+
+        //when 5%
+        BalanceAdjustmentJob.Result result = job.submit(BalanceAdjustment.INTEREST, 500, "adjA", "adjA");
+
+        //then
+        assertThat(result.getFailedChunks()).isZero();
+        assertThat(repository.findById("adjA").getMoney()).isEqualTo(105_000_000);
+        assertThat(repository.findById("adjB").getMoney()).isEqualTo(10000);
+    }
+}
@@ -0,0 +1,98 @@
+package hello.jdbc.bulk;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberBalanceExporterTest {
+
+    public static final String Member_A = "exportA";
+    public static final String Member_B = "exportB";
+
+    @TempDir
+    Path tempDir;
+
+    HikariDataSource dataSource;
+    MemberRepositoryV4_1 repository;
+    MemberBalanceExporter exporter;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        repository = new MemberRepositoryV4_1(dataSource);
+        exporter = new MemberBalanceExporter(dataSource, 1000);
+
+        repository.save(new Member(Member_A, 10000));
+        repository.save(new Member(Member_B, -500));
+    }
+
+    @AfterEach
+    void afterEach() {
+        repository.delete(Member_A);
+        repository.delete(Member_B);
+        dataSource.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("export 한 파일을 그대로 읽을 수 있다")
+    void roundTrip(boolean compress) {
+        //given
+        Path file = tempDir.resolve("balances.bin");
+
+        //when
+        long exported = exporter.export(file, compress);
+        Map<String, Integer> balances = new HashMap<>();
+        long read = MemberBalanceReader.read(file, balances::put);
+
+        //then
+        assertThat(read).isEqualTo(exported);
+        assertThat(balances).containsEntry(Member_A, 10000).containsEntry(Member_B, -500);
+    }
+
+    @Test
+    @DisplayName("잘린 파일은 읽지 않는다")
+    void truncated() throws IOException {
+        Path file = tempDir.resolve("balances.bin");
+        exporter.export(file, false);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThatThrownBy(() -> MemberBalanceReader.read(file, (memberId, money) -> {
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("ASCII 가 아닌 member_id 가 있으면 export 를 실패시킨다")
+    void nonAsciiMemberId() {
+        repository.save(new Member("export회원", 100));
+        try {
+            assertThatThrownBy(() -> exporter.export(tempDir.resolve("balances.bin"), false))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("non-ASCII");
+        } finally {
+            repository.delete("export회원");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package hello.jdbc.bulk;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberCsvImporterTest {
+
+    static final int MEMBERS = 5000;
+
+    @TempDir
+    Path tempDir;
+
+    HikariDataSource dataSource;
+    MemberRepositoryV4_1 repository;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(4);
+        repository = new MemberRepositoryV4_1(dataSource);
+    }
+
+    @AfterEach
+    void afterEach() throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("delete from member where member_id like 'bk%'")) {
+            pstmt.executeUpdate();
+        }
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("구간을 나눠 병렬로 적재한다")
+    void importFile() throws IOException {
+        //given
+        Path csv = writeCsv();
+
+        //when
+        MemberCsvImporter.Result result = new MemberCsvImporter(dataSource, 3, 500).importFile(csv);
+
+        //then
+        assertThat(result.getRows()).isEqualTo(MEMBERS);
+        assertThat(result.getInserted()).isEqualTo(MEMBERS);
+        assertThat(repository.findById("bk0").getMoney()).isEqualTo(0);
+        assertThat(repository.findById("bk4999").getMoney()).isEqualTo(4999);
+        assertThat(Files.exists(csv.resolveSibling("members.csv.checkpoint"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("체크포인트 이후부터 이어서 적재한다")
+    void resume() throws IOException {
+        //given : 1개 구간, 파일 끝까지 적재된 체크포인트
+        Path csv = writeCsv();
+        Path checkpoint = tempDir.resolve("members.checkpoint");
+        Files.writeString(checkpoint, "size=" + Files.size(csv) + ",partitions=1\n0=" + Files.size(csv) + "\n");
+
+        //when
+        MemberCsvImporter.Result result = new MemberCsvImporter(dataSource, 1, 500).importFile(csv, checkpoint);
+
+        //then
+        assertThat(result.getRows()).isZero();
+        assertThat(repository.existsById("bk0")).isFalse();
+    }
+
+    @Test
+    @DisplayName("체크포인트가 파일 중간이면 그 줄부터 적재한다")
+    void resumeFromMiddle() throws IOException {
+        //given : 앞의 2500명까지 적재된 체크포인트
+        Path csv = writeCsv();
+        long offset = ("member_id,money\n").length();
+        for (int i = 0; i < 2500; i++) {
+            offset += ("bk" + i + "," + i + "\n").length();
+        }
+        Path checkpoint = tempDir.resolve("members.checkpoint");
+        Files.writeString(checkpoint, "size=" + Files.size(csv) + ",partitions=1\n0=" + offset + "\n");
+
+        //when
+        MemberCsvImporter.Result result = new MemberCsvImporter(dataSource, 1, 500).importFile(csv, checkpoint);
+
+        //then
+        assertThat(result.getRows()).isEqualTo(MEMBERS - 2500);
+        assertThat(repository.existsById("bk2499")).isFalse();
+        assertThat(repository.findById("bk2500").getMoney()).isEqualTo(2500);
+        assertThat(repository.findById("bk4999").getMoney()).isEqualTo(4999);
+        assertThat(Files.exists(checkpoint)).isFalse();
+    }
+
+    @Test
+    @DisplayName("ASCII 가 아닌 member_id 는 거부한다")
+    void rejectNonAsciiMemberId() throws IOException {
+        //given
+        Path csv = Files.writeString(tempDir.resolve("members.csv"), "bk1,100\nbk회원,200\n", StandardCharsets.UTF_8);
+
+        //when, then
+        assertThatThrownBy(() -> new MemberCsvImporter(dataSource, 1, 500).importFile(csv))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("non-ASCII");
+    }
+
+    @Test
+    @DisplayName("음수 금액은 거부한다")
+    void rejectNegativeMoney() throws IOException {
+        //given
+        Path csv = Files.writeString(tempDir.resolve("members.csv"), "bk1,100\nbk2,-200\n", StandardCharsets.US_ASCII);
+
+        //when, then
+        assertThatThrownBy(() -> new MemberCsvImporter(dataSource, 1, 500).importFile(csv))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid money");
+    }
+
+    @Test
+    @DisplayName("이미 있는 회원은 덮어쓰지 않고 건너뛴 회원으로 알려준다")
+    void skipExistingMember() throws IOException {
+        //given
+        repository.save(new Member("bk1", 777));
+        Path csv = writeCsv();
+
+        //when
+        MemberCsvImporter.Result result = new MemberCsvImporter(dataSource, 3, 500).importFile(csv);
+
+        //then
+        assertThat(result.getInserted()).isEqualTo(MEMBERS - 1);
+        assertThat(result.getSkipped()).isEqualTo(1);
+        assertThat(result.getSkippedSamples()).containsExactly("bk1");
+        assertThat(repository.findById("bk1").getMoney()).isEqualTo(777);
+    }
+
+    @Test
+    @DisplayName("CSVREAD 로 적재할 때도 이미 있는 회원은 건너뛰고, 음수 금액이 있으면 아무것도 넣지 않는다")
+    void csvReadSkipExistingAndRejectNegative() throws IOException {
+        //given
+        repository.save(new Member("bk1", 777));
+        Path csv = writeCsv();
+        Path negative = Files.writeString(tempDir.resolve("negative.csv"),
+                "member_id,money\nbk9001,100\nbk9002,-200\n", StandardCharsets.US_ASCII);
+        MemberCsvImporter importer = new MemberCsvImporter(dataSource, 1, 500);
+
+        //when
+        MemberCsvImporter.Result result = importer.importWithCsvRead(csv.toAbsolutePath().toString());
+
+        //then
+        assertThat(result.getInserted()).isEqualTo(MEMBERS - 1);
+        assertThat(result.getSkippedSamples()).containsExactly("bk1");
+        assertThat(repository.findById("bk1").getMoney()).isEqualTo(777);
+        assertThatThrownBy(() -> importer.importWithCsvRead(negative.toAbsolutePath().toString()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(repository.existsById("bk9001")).isFalse();
+    }
+
+    @Test
+    @DisplayName("CSVREAD 로 DB 가 파일을 직접 읽어 적재한다")
+    void importWithCsvRead() throws IOException {
+        //given : 경로에 작은따옴표가 있어도 된다
+        Path csv = writeCsv();
+        Path quoted = Files.move(csv, tempDir.resolve("member's.csv"));
+
+        //when
+        MemberCsvImporter.Result result = new MemberCsvImporter(dataSource, 1, 500)
+                .importWithCsvRead(quoted.toAbsolutePath().toString());
+
+        //then
+        assertThat(result.getInserted()).isEqualTo(MEMBERS);
+        assertThat(repository.findById("bk0").getMoney()).isEqualTo(0);
+        assertThat(repository.findById("bk4999").getMoney()).isEqualTo(4999);
+    }
+
+    private Path writeCsv() throws IOException {
+        StringBuilder csv = new StringBuilder("member_id,money\n");
+        for (int i = 0; i < MEMBERS; i++) {
+            csv.append("bk").append(i).append(',').append(i).append('\n');
+        }
+        return Files.writeString(tempDir.resolve("members.csv"), csv);
+    }
+}
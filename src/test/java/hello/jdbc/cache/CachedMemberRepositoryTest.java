@@ -0,0 +1,89 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class CachedMemberRepositoryTest {
+
+    MemberRepository target = mock(MemberRepository.class);
+    MemberMoneyTable table = new MemberMoneyTable(1000);
+    CachedMemberRepository repository = new CachedMemberRepository(target, table);
+
+    @Test
+    @DisplayName("DB 에서 읽은 회원은 캐시되어 다음 조회는 DB 를 거치지 않는다")
+    void cacheOnMiss() {
+        //given
+        when(target.findByIdOptional("memberA")).thenReturn(Optional.of(new Member("memberA", 10000)));
+
+        //when
+        repository.findById("memberA");
+        Member cached = repository.findById("memberA");
+
+        //then
+        assertThat(cached.getMoney()).isEqualTo(10000);
+        verify(target, times(1)).findByIdOptional("memberA");
+    }
+
+    @Test
+    @DisplayName("조회 중에 다른 쓰기가 커밋되고 evict 하면 조회한 옛 값을 캐시하지 않는다")
+    void evictDuringLoad() {
+        //given : SELECT 직후, put 전에 다른 트랜잭션이 커밋하고 afterCompletion 에서 evict
+        when(target.findByIdOptional("memberA")).thenAnswer(invocation -> {
+            table.remove("memberA");
+            return Optional.of(new Member("memberA", 10000));
+        });
+
+        //when
+        Optional<Member> loaded = repository.findByIdOptional("memberA");
+
+        //then
+        assertThat(loaded).isPresent();
+        assertThat(table.get("memberA")).isEqualTo(MemberMoneyTable.MISSING);
+    }
+
+    @Test
+    @DisplayName("여러 회원 조회에도 조회 중 evict 된 회원은 캐시하지 않는다")
+    void evictDuringBatchLoad() {
+        //given
+        when(target.findAllById(anyCollection())).thenAnswer(invocation -> {
+            table.remove("memberB");
+            return Map.of("memberA", new Member("memberA", 1000), "memberB", new Member("memberB", 2000));
+        });
+
+        //when
+        repository.findAllById(List.of("memberA", "memberB"));
+
+        //then
+        assertThat(table.get("memberA")).isEqualTo(1000);
+        assertThat(table.get("memberB")).isEqualTo(MemberMoneyTable.MISSING);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 밖의 변경은 값을 넣지 않고 evict 한다")
+    void writeEvicts() {
+        //given
+        table.put("memberA", 10000);
+        table.put("memberB", 10000);
+        when(target.debitIfSufficient("memberB", 1000)).thenReturn(OptionalInt.of(9000));
+
+        //when
+        repository.update("memberA", 5000);
+        repository.debitIfSufficient("memberB", 1000);
+
+        //then
+        assertThat(table.get("memberA")).isEqualTo(MemberMoneyTable.MISSING);
+        assertThat(table.get("memberB")).isEqualTo(MemberMoneyTable.MISSING);
+        verify(target).update("memberA", 5000);
+    }
+}
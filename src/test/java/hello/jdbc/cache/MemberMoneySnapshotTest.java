@@ -0,0 +1,133 @@
+package hello.jdbc.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberMoneySnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    ListChangeFeed changeFeed = new ListChangeFeed();
+
+    @Test
+    void restore() {
+        //given
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+        table.put("memberA", 10000);
+        table.put("memberB", 20000);
+        MemberMoneySnapshot snapshot = new MemberMoneySnapshot(tempDir.resolve("cache.snapshot"));
+        snapshot.write(table, changeFeed);
+
+        //when
+        MemberMoneyTable restored = new MemberMoneyTable(1000);
+        boolean result = snapshot.restore(restored, changeFeed);
+
+        //then
+        assertThat(result).isTrue();
+        assertThat(restored.size()).isEqualTo(2);
+        assertThat(restored.get("memberA")).isEqualTo(10000);
+        assertThat(restored.get("memberB")).isEqualTo(20000);
+    }
+
+    @Test
+    void restoreIntoDifferentCapacity() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+        for (int i = 0; i < 500; i++) {
+            table.put("member" + i, i);
+        }
+        MemberMoneySnapshot snapshot = new MemberMoneySnapshot(tempDir.resolve("cache.snapshot"));
+        snapshot.write(table, changeFeed);
+
+        //slot 수가 다르면 다시 넣는다
+        MemberMoneyTable restored = new MemberMoneyTable(100_000);
+        assertThat(snapshot.restore(restored, changeFeed)).isTrue();
+        assertThat(restored.size()).isEqualTo(500);
+        assertThat(restored.get("member499")).isEqualTo(499);
+    }
+
+    @Test
+    void evictChangedSinceSnapshot() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+        table.put("memberA", 10000);
+        table.put("memberB", 20000);
+        changeFeed.changed("memberA"); // 스냅샷 전 변경
+        MemberMoneySnapshot snapshot = new MemberMoneySnapshot(tempDir.resolve("cache.snapshot"));
+        snapshot.write(table, changeFeed);
+        changeFeed.changed("memberB"); // 스냅샷 후 변경
+
+        MemberMoneyTable restored = new MemberMoneyTable(1000);
+        snapshot.restore(restored, changeFeed);
+
+        assertThat(restored.get("memberA")).isEqualTo(10000);
+        assertThat(restored.get("memberB")).isEqualTo(MemberMoneyTable.MISSING);
+    }
+
+    @Test
+    void allMembersChangedSinceSnapshot() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+        table.put("memberA", 10000);
+        MemberMoneySnapshot snapshot = new MemberMoneySnapshot(tempDir.resolve("cache.snapshot"));
+        snapshot.write(table, changeFeed);
+        changeFeed.changed(MemberChangeFeed.ALL_MEMBERS); // 스냅샷 후 일괄 변경
+
+        MemberMoneyTable restored = new MemberMoneyTable(1000);
+
+        assertThat(snapshot.restore(restored, changeFeed)).isFalse();
+        assertThat(restored.size()).isZero();
+    }
+
+    @Test
+    void tooOldSnapshot() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+        table.put("memberA", 10000);
+        MemberMoneySnapshot snapshot = new MemberMoneySnapshot(tempDir.resolve("cache.snapshot"));
+        snapshot.write(table, changeFeed);
+        changeFeed.purged = true;
+
+        MemberMoneyTable restored = new MemberMoneyTable(1000);
+
+        assertThat(snapshot.restore(restored, changeFeed)).isFalse();
+        assertThat(restored.size()).isZero();
+    }
+
+    @Test
+    void noSnapshot() {
+        MemberMoneySnapshot snapshot = new MemberMoneySnapshot(tempDir.resolve("missing.snapshot"));
+
+        assertThat(snapshot.restore(new MemberMoneyTable(1000), changeFeed)).isFalse();
+    }
+
+    static class ListChangeFeed implements MemberChangeFeed {
+
+        final List<String> changes = new ArrayList<>();
+        boolean purged;
+
+        void changed(String memberId) {
+            changes.add(memberId);
+        }
+
+        @Override
+        public long currentPosition() {
+            return changes.size();
+        }
+
+        @Override
+        public long changesSince(long position, Consumer<String> consumer) {
+            if (purged) {
+                throw new IllegalStateException("purged");
+            }
+            for (int i = (int) position; i < changes.size(); i++) {
+                consumer.accept(changes.get(i));
+            }
+            return changes.size();
+        }
+    }
+}
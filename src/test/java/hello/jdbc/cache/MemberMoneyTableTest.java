@@ -0,0 +1,67 @@
+package hello.jdbc.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberMoneyTableTest {
+
+    @Test
+    void putGetRemove() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+
+        assertThat(table.put("memberA", 10000)).isTrue();
+        assertThat(table.put("memberB", -500)).isTrue();
+        assertThat(table.get("memberA")).isEqualTo(10000);
+        assertThat(table.get("memberB")).isEqualTo(-500);
+        assertThat(table.get("memberC")).isEqualTo(MemberMoneyTable.MISSING);
+
+        //update
+        table.put("memberA", 8000);
+        assertThat(table.get("memberA")).isEqualTo(8000);
+        assertThat(table.size()).isEqualTo(2);
+
+        //remove
+        assertThat(table.remove("memberA")).isTrue();
+        assertThat(table.get("memberA")).isEqualTo(MemberMoneyTable.MISSING);
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void notCacheableKey() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+
+        assertThat(table.put("memberWithVeryLongId", 1)).isFalse(); // 16자 초과
+        assertThat(table.put("회원A", 1)).isFalse(); // ASCII 아님
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    void reuseRemovedSlots() {
+        // tombstone 이 쌓여도 용량 안에서는 계속 저장할 수 있어야 한다
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 500; i++) {
+                assertThat(table.put("m" + round + "-" + i, i)).isTrue();
+            }
+            for (int i = 0; i < 500; i++) {
+                table.remove("m" + round + "-" + i);
+            }
+        }
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    void putIfNotInvalidated() {
+        MemberMoneyTable table = new MemberMoneyTable(1000);
+
+        long version = table.invalidationVersion("memberA");
+        table.remove("memberA"); // 없는 키여도 무효화
+        assertThat(table.putIfNotInvalidated("memberA", 10000, version)).isFalse();
+        assertThat(table.get("memberA")).isEqualTo(MemberMoneyTable.MISSING);
+
+        version = table.invalidationVersion("memberA");
+        assertThat(table.putIfNotInvalidated("memberA", 10000, version)).isTrue();
+        assertThat(table.get("memberA")).isEqualTo(10000);
+    }
+}
@@ -0,0 +1,69 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptivePoolSizerTest {
+
+    HikariDataSource dataSource;
+    AdaptivePoolSizer sizer;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        dataSource.setMaximumPoolSize(4);
+        // min 1, max 4, 목표 대기 1000ms (커넥션 생성 시간은 대기로 보지 않도록), 유휴가 절반 이상이면 x0.5
+        sizer = new AdaptivePoolSizer(dataSource, new AimdPoolSizePolicy(1, 4, 1000, 5000, 1, 0.5), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void afterEach() {
+        sizer.close();
+        dataSource.close();
+    }
+
+    @Test
+    void minimumIdleBelowMaximum() throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            assertThat(con.isValid(1)).isTrue();
+        }
+
+        // minimumIdle 이 maximumPoolSize 와 같으면 Hikari 는 유휴 커넥션을 닫지 않는다
+        assertThat(dataSource.getHikariConfigMXBean().getMinimumIdle()).isEqualTo(1);
+        assertThat(dataSource.getHikariConfigMXBean().getMaximumPoolSize()).isEqualTo(4);
+    }
+
+    @Test
+    void shrinkIdlePool() throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            connections.add(dataSource.getConnection());
+        }
+        for (Connection con : connections) {
+            con.close();
+        }
+
+        assertThat(dataSource.getHikariPoolMXBean().getIdleConnections()).isEqualTo(4);
+
+        //유휴 커넥션만 있는 상태에서 조절
+        sizer.adjust();
+
+        assertThat(dataSource.getHikariConfigMXBean().getMaximumPoolSize()).isEqualTo(2);
+        assertThat(dataSource.getHikariConfigMXBean().getMinimumIdle())
+                .isLessThan(dataSource.getHikariConfigMXBean().getMaximumPoolSize());
+    }
+}
@@ -0,0 +1,35 @@
+package hello.jdbc.connection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdPoolSizePolicyTest {
+
+    // min 5, max 50, 목표 대기 10ms, 사용 시간 상한 200ms, +5 / x0.5
+    AimdPoolSizePolicy policy = new AimdPoolSizePolicy(5, 50, 10, 200, 5, 0.5);
+
+    @Test
+    void increaseWhenWaiting() {
+        PoolSample sample = new PoolSample(30, 20, 10, 0, 8, 0);
+        assertThat(policy.nextSize(10, sample)).isEqualTo(15);
+    }
+
+    @Test
+    void doNotIncreaseWhenDatabaseSaturated() {
+        PoolSample sample = new PoolSample(30, 500, 10, 0, 8, 0);
+        assertThat(policy.nextSize(10, sample)).isEqualTo(10);
+    }
+
+    @Test
+    void decreaseWhenIdle() {
+        PoolSample sample = new PoolSample(0, 5, 2, 18, 0, 0);
+        assertThat(policy.nextSize(20, sample)).isEqualTo(10);
+    }
+
+    @Test
+    void keepBounds() {
+        assertThat(policy.nextSize(48, new PoolSample(30, 20, 48, 0, 8, 1))).isEqualTo(50);
+        assertThat(policy.nextSize(6, new PoolSample(0, 5, 0, 6, 0, 0))).isEqualTo(5);
+    }
+}
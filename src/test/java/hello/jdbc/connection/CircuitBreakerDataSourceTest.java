@@ -0,0 +1,57 @@
+package hello.jdbc.connection;
+
+import hello.jdbc.repository.ex.MyCircuitOpenException;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CircuitBreakerDataSourceTest {
+
+    DataSource target = mock(DataSource.class);
+
+    CircuitBreakerDataSource circuitBreaker(Duration openDuration) {
+        // 최근 10회 중 최소 4회 이상 호출, 실패율 50% 이상이면 OPEN
+        return new CircuitBreakerDataSource(target, 10, 4, 0.5,
+                Duration.ofSeconds(1), 0.5, openDuration, 1);
+    }
+
+    @Test
+    void openAfterFailures() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("db down"));
+        CircuitBreakerDataSource dataSource = circuitBreaker(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLException.class);
+        }
+
+        //OPEN : DB 에 접속을 시도하지 않는다
+        assertThat(dataSource.getState()).isEqualTo(CircuitBreakerDataSource.State.OPEN);
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(MyCircuitOpenException.class);
+        verify(target, times(4)).getConnection();
+    }
+
+    @Test
+    void closeAfterSuccessfulProbe() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(target.getConnection())
+                .thenThrow(new SQLException("db down"), new SQLException("db down"),
+                        new SQLException("db down"), new SQLException("db down"))
+                .thenReturn(connection);
+        CircuitBreakerDataSource dataSource = circuitBreaker(Duration.ZERO);
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLException.class);
+        }
+
+        //HALF_OPEN 확인 호출 성공 -> CLOSED
+        assertThat(dataSource.getConnection()).isSameAs(connection);
+        assertThat(dataSource.getState()).isEqualTo(CircuitBreakerDataSource.State.CLOSED);
+    }
+}
@@ -0,0 +1,100 @@
+package hello.jdbc.connection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionSessionTemplateTest {
+
+    public static final String Member_A = "session";
+
+    HikariDataSource dataSource;
+    MemberRepositoryV4_1 repository;
+    ConnectionSessionTemplate sessionTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        repository = new MemberRepositoryV4_1(dataSource);
+        sessionTemplate = new ConnectionSessionTemplate(dataSource);
+    }
+
+    @AfterEach
+    void afterEach() {
+        repository.delete(Member_A);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("세션 안에서는 같은 커넥션을 재사용한다")
+    void reuseConnection() {
+        sessionTemplate.executeWithoutResult(() -> {
+            Connection first = DataSourceUtils.getConnection(dataSource);
+            DataSourceUtils.releaseConnection(first, dataSource);
+            Connection second = DataSourceUtils.getConnection(dataSource);
+            DataSourceUtils.releaseConnection(second, dataSource);
+
+            assertThat(second).isSameAs(first);
+            assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isEqualTo(1);
+        });
+
+        assertThat(TransactionSynchronizationManager.hasResource(dataSource)).isFalse();
+        assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isZero();
+    }
+
+    @Test
+    @DisplayName("트랜잭션이 아니므로 각 SQL 은 바로 커밋된다")
+    void autoCommit() {
+        sessionTemplate.executeWithoutResult(() -> {
+            repository.save(new Member(Member_A, 10000));
+            repository.update(Member_A, 20000);
+
+            assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+        });
+
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(20000);
+    }
+
+    @Test
+    @DisplayName("세션 안의 트랜잭션은 세션 커넥션을 사용하고 끝나면 auto commit 으로 돌아온다")
+    void transactionInsideSession() {
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        sessionTemplate.executeWithoutResult(() -> {
+            Connection session = DataSourceUtils.getConnection(dataSource);
+            DataSourceUtils.releaseConnection(session, dataSource);
+
+            txTemplate.executeWithoutResult(status -> {
+                assertThat(DataSourceUtils.getConnection(dataSource)).isSameAs(session);
+                repository.save(new Member(Member_A, 10000));
+                status.setRollbackOnly();
+            });
+
+            try {
+                assertThat(session.getAutoCommit()).isTrue();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(repository.existsById(Member_A)).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package hello.jdbc.connection;
+
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.support.Deadline;
+import hello.jdbc.support.DeadlineContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class DeadlineAwareTransactionManagerTest {
+
+    DataSource dataSource = mock(DataSource.class);
+    DeadlineAwareTransactionManager transactionManager = new DeadlineAwareTransactionManager(dataSource);
+
+    @Test
+    void determineTimeoutWithoutDeadline() {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        assertThat(transactionManager.determineTimeout(definition)).isEqualTo(TransactionDefinition.TIMEOUT_DEFAULT);
+
+        definition.setTimeout(5);
+        assertThat(transactionManager.determineTimeout(definition)).isEqualTo(5);
+    }
+
+    @Test
+    void determineTimeoutWithDeadline() {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        Deadline deadline = Deadline.after(Duration.ofMillis(2500));
+
+        //timeout 미지정 : 남은 시간(올림)
+        assertThat(DeadlineContext.call(deadline, () -> transactionManager.determineTimeout(definition))).isEqualTo(3);
+
+        //더 짧은 쪽
+        definition.setTimeout(1);
+        assertThat(DeadlineContext.call(deadline, () -> transactionManager.determineTimeout(definition))).isEqualTo(1);
+        definition.setTimeout(60);
+        assertThat(DeadlineContext.call(deadline, () -> transactionManager.determineTimeout(definition))).isEqualTo(3);
+    }
+
+    @Test
+    void beginAppliesRemainingTime() throws SQLException {
+        //given
+        Connection con = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(con);
+
+        //when
+        int timeToLive = DeadlineContext.call(Deadline.after(Duration.ofSeconds(3)), () -> {
+            TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            try {
+                ConnectionHolder holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+                assertThat(holder.hasTimeout()).isTrue();
+                return holder.getTimeToLiveInSeconds();
+            } finally {
+                transactionManager.rollback(status);
+            }
+        });
+
+        //then
+        assertThat(timeToLive).isBetween(1, 3);
+        verify(con).rollback();
+    }
+
+    @Test
+    void expiredDeadlineBeforeBegin() throws SQLException {
+        //when
+        assertThatThrownBy(() -> DeadlineContext.run(Deadline.after(Duration.ofMillis(-1)),
+                () -> transactionManager.getTransaction(new DefaultTransactionDefinition())))
+                .isInstanceOf(MyDeadlineExceededException.class);
+
+        //then : 커넥션을 획득하지 않는다
+        verify(dataSource, never()).getConnection();
+        assertThat(TransactionSynchronizationManager.hasResource(dataSource)).isFalse();
+    }
+}
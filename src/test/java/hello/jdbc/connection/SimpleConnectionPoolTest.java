@@ -0,0 +1,148 @@
+package hello.jdbc.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SimpleConnectionPoolTest {
+
+    SimpleConnectionPool pool;
+
+    @AfterEach
+    void after() {
+        pool.close();
+    }
+
+    SimpleConnectionPool pool(int maximumPoolSize, Duration idleTimeout) {
+        return new SimpleConnectionPool(URL, USERNAME, PASSWORD, maximumPoolSize, 0,
+                Duration.ofMillis(200), idleTimeout, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void reuseConnection() throws SQLException {
+        pool = pool(2, Duration.ofMinutes(10));
+
+        Connection con1 = pool.getConnection();
+        Connection physical = con1.unwrap(Connection.class);
+        con1.close(); // 반납
+
+        Connection con2 = pool.getConnection();
+        assertThat(con2.unwrap(Connection.class)).isSameAs(physical);
+        assertThat(con1.isClosed()).isTrue();
+        assertThat(pool.getTotalConnections()).isEqualTo(1);
+        con2.close();
+    }
+
+    @Test
+    void timeoutWhenExhausted() throws SQLException {
+        pool = pool(1, Duration.ofMinutes(10));
+        Connection con = pool.getConnection();
+
+        assertThatThrownBy(pool::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        con.close();
+    }
+
+    @Test
+    void handoffToWaitingThread() throws Exception {
+        pool = pool(1, Duration.ofMinutes(10));
+        Connection con = pool.getConnection();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        con.close();
+
+        Connection handed = waiting.get(1, TimeUnit.SECONDS);
+        assertThat(handed).isNotNull();
+        handed.close();
+    }
+
+    @Test
+    void failWaitingThreadWhenClosed() throws Exception {
+        pool = new SimpleConnectionPool(URL, USERNAME, PASSWORD, 1, 0,
+                Duration.ofSeconds(10), Duration.ofMinutes(10), Duration.ofMinutes(30));
+        Connection con = pool.getConnection();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        pool.close();
+
+        //connectionTimeout(10초)까지 기다리지 않고 바로 실패
+        assertThatThrownBy(() -> waiting.get(1, TimeUnit.SECONDS)).hasRootCauseMessage("pool is closed");
+        con.close();
+        assertThat(pool.getTotalConnections()).isZero();
+    }
+
+    @Test
+    void rollbackOnRelease() throws SQLException {
+        pool = pool(1, Duration.ofMinutes(10));
+        Connection con = pool.getConnection();
+        con.setAutoCommit(false);
+        con.close();
+
+        Connection reused = pool.getConnection();
+        assertThat(reused.getAutoCommit()).isTrue();
+        reused.close();
+    }
+
+    @Test
+    void resetSessionStateOnRelease() throws SQLException {
+        pool = pool(1, Duration.ofMinutes(10));
+        Connection con = pool.getConnection();
+        boolean readOnly = con.isReadOnly();
+        int isolation = con.getTransactionIsolation();
+        con.setReadOnly(!readOnly);
+        con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        con.close();
+
+        Connection reused = pool.getConnection();
+        assertThat(reused.isReadOnly()).isEqualTo(readOnly);
+        assertThat(reused.getTransactionIsolation()).isEqualTo(isolation);
+        reused.close();
+    }
+
+    @Test
+    void connectionWithOtherCredentialsIsNotPooled() throws SQLException {
+        pool = pool(1, Duration.ofMinutes(10));
+
+        Connection con = pool.getConnection(USERNAME, PASSWORD);
+        assertThat(pool.getTotalConnections()).isZero();
+        con.close();
+
+        //풀 커넥션과 별개로 닫힌다
+        assertThat(con.isClosed()).isTrue();
+        assertThat(pool.getTotalConnections()).isZero();
+    }
+
+    @Test
+    void evictIdleConnection() throws SQLException {
+        pool = pool(2, Duration.ZERO);
+        pool.getConnection().close();
+        assertThat(pool.getIdleConnections()).isEqualTo(1);
+
+        pool.housekeep();
+
+        assertThat(pool.getTotalConnections()).isZero();
+    }
+}
@@ -0,0 +1,56 @@
+package hello.jdbc.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchingMemberChangePublisherTest {
+
+    @Test
+    void deliverInBatches() throws InterruptedException {
+        //given
+        List<List<MemberChanged>> batches = new CopyOnWriteArrayList<>();
+        BatchingMemberChangePublisher publisher = new BatchingMemberChangePublisher(batches::add, 100, 10, Duration.ofSeconds(1));
+
+        //when : 시작 전에 쌓인 25건
+        for (int i = 0; i < 25; i++) {
+            publisher.afterCommit(List.of(new MemberChanged("member" + i, 0, i, "tx")));
+        }
+        publisher.start();
+        publisher.close();
+
+        //then
+        assertThat(batches).extracting(List::size).containsExactly(10, 10, 5);
+        assertThat(batches.get(0).get(0).getMemberId()).isEqualTo("member0");
+    }
+
+    @Test
+    void dropWhenFull() throws InterruptedException {
+        //given : subscriber 가 막혀 있고 큐는 1건
+        CountDownLatch blocked = new CountDownLatch(1);
+        BatchingMemberChangePublisher publisher = new BatchingMemberChangePublisher(batch -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, 10, Duration.ofMillis(50));
+        publisher.start();
+
+        //when
+        publisher.afterCommit(List.of(new MemberChanged("memberA", 0, 1, "tx"))); // subscriber 가 가져감
+        Thread.sleep(200);
+        publisher.afterCommit(List.of(new MemberChanged("memberB", 0, 1, "tx"))); // 큐
+        publisher.afterCommit(List.of(new MemberChanged("memberC", 0, 1, "tx"))); // 50ms 대기 후 버림
+
+        //then
+        assertThat(publisher.getDropped()).isEqualTo(1);
+        blocked.countDown();
+        publisher.close();
+    }
+}
@@ -0,0 +1,184 @@
+package hello.jdbc.event;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.cache.MemberChangeFeed;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberChangeOutboxTest {
+
+    public static final String Member_A = "eventA";
+    public static final String Member_B = "eventB";
+
+    HikariDataSource dataSource;
+    MemberChangeOutbox outbox;
+    List<MemberChanged> published = new CopyOnWriteArrayList<>();
+    MemberRepositoryV4_1 repository;
+    TransactionTemplate txTemplate;
+    long start;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        outbox = new MemberChangeOutbox(dataSource);
+        repository = new MemberRepositoryV4_1(dataSource, new OutboxMemberChangePublisher(outbox, published::addAll));
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        start = outbox.assignPositions(); // 이전 테스트의 이벤트 제외
+    }
+
+    @AfterEach
+    void afterEach() {
+        MemberRepositoryV4_1 plain = new MemberRepositoryV4_1(dataSource);
+        plain.delete(Member_A);
+        plain.delete(Member_B);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("커밋된 후에 트랜잭션 단위로 전달되고 outbox 에도 남는다")
+    void afterCommit() {
+        repository.save(new Member(Member_A, 10000));
+        repository.save(new Member(Member_B, 10000));
+        published.clear();
+
+        txTemplate.executeWithoutResult(status -> {
+            Member memberA = repository.findById(Member_A);
+            repository.findById(Member_B);
+            repository.update(Member_A, memberA.getMoney() - 2000);
+            repository.update(Member_B, 12000);
+            assertThat(published).isEmpty(); // 아직 커밋 전
+        });
+
+        assertThat(published).hasSize(2);
+        assertThat(published.get(0)).isEqualTo(new MemberChanged(Member_A, 10000, 8000, published.get(0).getTransactionId()));
+        assertThat(published.get(1).getTransactionId()).isEqualTo(published.get(0).getTransactionId());
+
+        outbox.assignPositions();
+        List<String> outboxMembers = new ArrayList<>();
+        for (MemberChangeOutbox.Entry entry : outbox.findSince(start, 100)) {
+            outboxMembers.add(entry.getEvent().getMemberId());
+        }
+        assertThat(outboxMembers).containsExactly(Member_A, Member_B, Member_A, Member_B); // save 2건 + update 2건
+    }
+
+    @Test
+    @DisplayName("트랜잭션 밖의 변경도 outbox 기록과 같은 트랜잭션으로 커밋된다")
+    void autoCommitChangeInTransaction() {
+        repository.save(new Member(Member_A, 10000));
+        repository.update(Member_A, 7000);
+
+        assertThat(published).extracting(MemberChanged::getNewMoney).containsExactly(10000, 7000);
+        outbox.assignPositions();
+        assertThat(outbox.findSince(start, 100)).hasSize(2);
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(7000);
+    }
+
+    @Test
+    @DisplayName("롤백되면 전달되지 않고 outbox 에도 남지 않는다")
+    void rollback() {
+        repository.save(new Member(Member_A, 10000));
+        published.clear();
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(Member_A, 5000);
+            status.setRollbackOnly();
+        });
+
+        assertThat(published).isEmpty();
+        outbox.assignPositions();
+        assertThat(outbox.findSince(start, 100)).hasSize(1); // save 만
+    }
+
+    @Test
+    @DisplayName("outbox 로 스냅샷 이후 변경된 회원을 찾는다")
+    void changeFeed() {
+        OutboxMemberChangeFeed feed = new OutboxMemberChangeFeed(outbox, Duration.ZERO);
+        repository.save(new Member(Member_A, 10000));
+        long position = feed.currentPosition();
+        repository.save(new Member(Member_B, 10000));
+
+        List<String> changed = new ArrayList<>();
+        feed.changesSince(position, changed::add);
+
+        assertThat(changed).containsExactly(Member_B);
+    }
+
+    @Test
+    @DisplayName("margin 안에 위치를 받은 최근 변경은 현재 위치 이후 변경으로 다시 읽힌다")
+    void recentChangesWithinMargin() {
+        OutboxMemberChangeFeed feed = new OutboxMemberChangeFeed(outbox, Duration.ofMinutes(1));
+        repository.save(new Member(Member_A, 10000));
+
+        long position = feed.currentPosition();
+
+        List<String> changed = new ArrayList<>();
+        feed.changesSince(position, changed::add);
+        assertThat(changed).contains(Member_A);
+    }
+
+    @Test
+    @DisplayName("repository 밖의 writer 가 자기 커넥션으로 기록한 이벤트도 커밋되면 읽힌다")
+    void appendWithConnection() throws SQLException {
+        OutboxMemberChangeFeed feed = new OutboxMemberChangeFeed(outbox, Duration.ZERO);
+        long position = feed.currentPosition();
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            outbox.append(con, List.of(new MemberChanged(Member_A, 1000, 2000, "writer")));
+            outbox.appendAllMembersChanged(con, "writer");
+            con.commit();
+            con.setAutoCommit(true);
+        }
+
+        List<String> changed = new ArrayList<>();
+        feed.changesSince(position, changed::add);
+        assertThat(changed).containsExactly(Member_A, MemberChangeFeed.ALL_MEMBERS);
+    }
+
+    @Test
+    @DisplayName("위치를 받은 뒤에 커밋된 이벤트는 먼저 insert 되었어도 그 위치 이후 변경으로 읽힌다")
+    void lateCommitAfterPosition() throws SQLException {
+        OutboxMemberChangeFeed feed = new OutboxMemberChangeFeed(outbox, Duration.ZERO);
+
+        long position;
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            // event_id 를 먼저 할당받고 커밋은 늦게 하는 트랜잭션
+            try (PreparedStatement pstmt = con.prepareStatement(
+                    "insert into member_change_outbox(member_id, new_money, transaction_id) values (?, 1000, 'late')")) {
+                pstmt.setString(1, Member_B);
+                pstmt.executeUpdate();
+            }
+            repository.save(new Member(Member_A, 10000));
+            position = feed.currentPosition();
+            con.commit();
+            con.setAutoCommit(true);
+        }
+
+        List<String> changed = new ArrayList<>();
+        feed.changesSince(position, changed::add);
+
+        assertThat(changed).containsExactly(Member_B);
+    }
+}
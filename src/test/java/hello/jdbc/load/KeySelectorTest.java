@@ -0,0 +1,40 @@
+package hello.jdbc.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeySelectorTest {
+
+    Random random = new Random(1);
+
+    @Test
+    void zipf() {
+        int[] counts = select(KeySelector.zipf(1000, 1.0), 1000);
+
+        //1위는 2위의 약 2배, 꼬리는 드물게
+        assertThat(counts[0]).isBetween((int) (counts[1] * 1.7), (int) (counts[1] * 2.3));
+        assertThat(counts[999]).isLessThan(counts[0] / 100);
+    }
+
+    @Test
+    void hotspot() {
+        int[] counts = select(KeySelector.hotspot(1000, 0.01, 0.9), 1000);
+
+        int hot = 0;
+        for (int i = 0; i < 10; i++) {
+            hot += counts[i];
+        }
+        assertThat(hot).isBetween(88_000, 92_000);
+    }
+
+    private int[] select(KeySelector selector, int n) {
+        int[] counts = new int[n];
+        for (int i = 0; i < 100_000; i++) {
+            counts[selector.next(random)]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,48 @@
+package hello.jdbc.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        //bucket 상대 오차 이내
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat((double) histogram.percentile(0.5)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(500), within(35_000_000.0));
+        assertThat((double) histogram.percentile(0.99)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(990), within(65_000_000.0));
+        assertThat(histogram.percentile(1.0)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    void bucketBoundary() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(value);
+            assertThat(LatencyHistogram.index(LatencyHistogram.upperBound(index))).isEqualTo(index);
+        }
+    }
+
+    @Test
+    void snapshotAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(200);
+
+        LatencyHistogram snapshot = histogram.snapshotAndReset();
+
+        assertThat(snapshot.getCount()).isEqualTo(2);
+        assertThat(snapshot.getMax()).isEqualTo(200);
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.percentile(0.5)).isZero();
+    }
+}
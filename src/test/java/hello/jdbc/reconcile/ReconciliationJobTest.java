@@ -0,0 +1,140 @@
+package hello.jdbc.reconcile;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.LedgerRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconciliationJobTest {
+
+    public static final String Member_A = "reconA";
+    public static final String Member_B = "reconB";
+    public static final String Member_C = "reconC";
+    public static final String Ledger_A = "reconLA";
+    public static final String Ledger_B = "reconLB";
+    public static final String Orphan = "reconOrph";
+
+    HikariDataSource dataSource;
+    MemberRepositoryV4_1 repository;
+    LedgerRepository ledgerRepository;
+    JdbcTemplate template;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+        repository = new MemberRepositoryV4_1(dataSource);
+        ledgerRepository = new LedgerRepository(dataSource);
+        template = new JdbcTemplate(dataSource);
+
+        repository.save(new Member(Member_A, 10000));
+        repository.save(new Member(Member_B, 20000));
+        repository.save(new Member(Member_C, -300));
+    }
+
+    @AfterEach
+    void afterEach() {
+        repository.delete(Member_A);
+        repository.delete(Member_B);
+        repository.delete(Member_C);
+        template.update("delete from transfer_journal where member_id in (?, ?, ?)", Ledger_A, Ledger_B, Orphan);
+        template.update("delete from balance_snapshot where member_id in (?, ?)", Ledger_A, Ledger_B);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("여러 구간으로 나눠 병렬 점검해도 전체 합계와 음수 잔액이 한번에 조회한 값과 같다")
+    void reconcileInRanges() throws SQLException {
+        //given
+        ReconciliationJob job = new ReconciliationJob(dataSource, 4, 2, 100, false);
+
+        //when
+        ReconciliationReport report = job.run();
+
+        //then
+        assertThat(report.getMembers()).isEqualTo(queryLong("select count(*) from member"));
+        assertThat(report.getTotalMoney()).isEqualTo(queryLong("select coalesce(sum(money), 0) from member"));
+        assertThat(report.getNegativeBalances()).isEqualTo(queryLong("select count(*) from member where money < 0"));
+        assertThat(report.getRanges()).isGreaterThan(1);
+        assertThat(report.isConsistent()).isFalse();
+    }
+
+    @Test
+    @DisplayName("구간 크기가 회원 수보다 커도 하나의 구간으로 전체를 점검한다")
+    void singleRange() throws SQLException {
+        //given
+        ReconciliationJob job = new ReconciliationJob(dataSource, 2, Integer.MAX_VALUE, 100, false);
+
+        //when
+        ReconciliationReport report = job.run();
+
+        //then
+        assertThat(report.getRanges()).isEqualTo(1);
+        assertThat(report.getMembers()).isEqualTo(queryLong("select count(*) from member"));
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    @DisplayName("원장은 압축 전후 모두 스냅샷 + tail 과 개설 금액 + 전체 journal 합계가 같다")
+    void ledgerConsistent() {
+        //given : 압축된 이체와 tail 에 남은 이체
+        ledgerRepository.openAccount(Ledger_A, 10000);
+        ledgerRepository.openAccount(Ledger_B, 10000);
+        ledgerRepository.appendTransfer("recon-t1", Ledger_A, Ledger_B, 1000);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .executeWithoutResult(status -> ledgerRepository.compact());
+        ledgerRepository.appendTransfer("recon-t2", Ledger_B, Ledger_A, 300);
+
+        //when
+        ReconciliationReport report = new ReconciliationJob(dataSource, 4, 2, 100, true).run();
+
+        //then member.money 는 원장과 비교하지 않는다
+        assertThat(report.getMismatchSamples()).noneMatch(sample -> sample.startsWith("reconL"));
+        assertThat(report.getOrphanSamples()).doesNotContain(Ledger_A, Ledger_B);
+    }
+
+    @Test
+    @DisplayName("압축이 잘못된 계좌, 계좌 없는 journal, 짝이 맞지 않는 이체를 찾는다")
+    void ledgerInconsistent() {
+        //given
+        ledgerRepository.openAccount(Ledger_A, 10000);
+        ledgerRepository.openAccount(Ledger_B, 10000);
+        ledgerRepository.appendTransfer("recon-t1", Ledger_A, Ledger_B, 1000);
+        template.update("update balance_snapshot set money = money + 1 where member_id = ?", Ledger_A); // 잘못된 압축
+        ledgerRepository.appendTransfer("recon-t2", Orphan, Ledger_B, 500); // 계좌 없는 회원
+        template.update("insert into transfer_journal(transfer_id, member_id, amount) values ('recon-t3', ?, 100)", Ledger_B);
+
+        //when
+        ReconciliationReport report = new ReconciliationJob(dataSource, 4, 2, 100, true).run();
+
+        //then
+        assertThat(report.getMismatchSamples()).anyMatch(sample -> sample.startsWith(Ledger_A + "("));
+        assertThat(report.getOrphanSamples()).contains(Orphan);
+        assertThat(report.getUnbalancedTransfers()).isGreaterThanOrEqualTo(1);
+        assertThat(report.isConsistent()).isFalse();
+    }
+}
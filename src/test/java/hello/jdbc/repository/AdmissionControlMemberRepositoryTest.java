@@ -0,0 +1,69 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.admission.AdmissionController;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.repository.ex.MyOverloadException;
+import hello.jdbc.support.Deadline;
+import hello.jdbc.support.DeadlineContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class AdmissionControlMemberRepositoryTest {
+
+    MemberRepository target = mock(MemberRepository.class);
+    AdmissionController controller = new AdmissionController(1, 10, Duration.ofSeconds(10));
+    AdmissionControlMemberRepository repository = new AdmissionControlMemberRepository(target, controller);
+
+    @Test
+    void waitOnlyForRemainingDeadline() throws InterruptedException {
+        //given : 유일한 permit 을 점유
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> controller.run(() -> {
+                started.countDown();
+                await(release);
+            }));
+            started.await();
+
+            //when : 기본 timeout(10초)이 아니라 요청의 남은 시간(100ms)만 기다린다
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> DeadlineContext.run(Deadline.after(Duration.ofMillis(100)), () -> repository.findById("memberA")))
+                    .isInstanceOf(MyOverloadException.class);
+
+            //then
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void rejectExpiredDeadline() {
+        when(target.findById("memberA")).thenReturn(new Member("memberA", 10000));
+
+        assertThatThrownBy(() -> DeadlineContext.run(Deadline.after(Duration.ofMillis(-1)), () -> repository.findById("memberA")))
+                .isInstanceOf(MyDeadlineExceededException.class);
+        verify(target, never()).findById("memberA");
+        assertThat(controller.getInFlight()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class HedgedMemberReaderTest {
+
+    ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void primaryWithinDelay() throws SQLException {
+        //given
+        DataSource primary = dataSource(memberRow(10000), null);
+        DataSource secondary = mock(DataSource.class);
+        HedgedMemberReader reader = new HedgedMemberReader(primary, secondary, executor,
+                0.95, Duration.ofSeconds(1), Duration.ZERO);
+
+        //when
+        Member member = reader.findById("memberA");
+
+        //then
+        assertThat(member.getMoney()).isEqualTo(10000);
+        assertThat(reader.getHedgedCount()).isZero();
+        verify(secondary, never()).getConnection();
+    }
+
+    @Test
+    void hedgeWhenPrimaryIsSlow() throws SQLException {
+        //given : primary 는 cancel 될 때까지 응답하지 않는다
+        CountDownLatch cancelled = new CountDownLatch(1);
+        PreparedStatement slowStatement = mock(PreparedStatement.class);
+        when(slowStatement.executeQuery()).thenAnswer(invocation -> {
+            cancelled.await();
+            throw new SQLException("statement cancelled");
+        });
+        doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(slowStatement).cancel();
+        DataSource primary = dataSource(null, slowStatement);
+        DataSource secondary = dataSource(memberRow(20000), null);
+        HedgedMemberReader reader = new HedgedMemberReader(primary, secondary, executor,
+                0.95, Duration.ofMillis(50), Duration.ZERO);
+
+        //when
+        Member member = reader.findById("memberA");
+
+        //then : secondary 결과 사용, primary 쿼리는 취소
+        assertThat(member.getMoney()).isEqualTo(20000);
+        assertThat(reader.getHedgedCount()).isEqualTo(1);
+        verify(slowStatement).cancel();
+    }
+
+    @Test
+    void hedgeWhenPrimaryFailsFast() throws SQLException {
+        //given : primary 는 바로 실패
+        PreparedStatement failing = mock(PreparedStatement.class);
+        when(failing.executeQuery()).thenThrow(new SQLException("connection reset"));
+        DataSource primary = dataSource(null, failing);
+        DataSource secondary = dataSource(memberRow(20000), null);
+        HedgedMemberReader reader = new HedgedMemberReader(primary, secondary, executor,
+                0.95, Duration.ofSeconds(10), Duration.ZERO);
+
+        //when
+        Member member = reader.findById("memberA");
+
+        //then : 지연을 기다리지 않고 secondary 결과 사용
+        assertThat(member.getMoney()).isEqualTo(20000);
+        assertThat(reader.getHedgedCount()).isEqualTo(1);
+    }
+
+    private ResultSet memberRow(int money) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getString("member_id")).thenReturn("memberA");
+        when(rs.getInt("money")).thenReturn(money);
+        return rs;
+    }
+
+    private DataSource dataSource(ResultSet rs, PreparedStatement statement) throws SQLException {
+        PreparedStatement pstmt = statement;
+        if (pstmt == null) {
+            pstmt = mock(PreparedStatement.class);
+            when(pstmt.executeQuery()).thenReturn(rs);
+        }
+        Connection con = mock(Connection.class);
+        when(con.prepareStatement(anyString())).thenReturn(pstmt);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(con);
+        return dataSource;
+    }
+}
@@ -0,0 +1,122 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class MemberBatchLoaderTest {
+
+    List<Collection<String>> queries = new CopyOnWriteArrayList<>();
+    MemberRepository repository = mock(MemberRepository.class);
+    MemberBatchLoader loader;
+
+    @AfterEach
+    void after() {
+        loader.close();
+    }
+
+    void givenMembers(String... memberIds) {
+        when(repository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> requested = invocation.getArgument(0);
+            queries.add(new ArrayList<>(requested));
+            Map<String, Member> result = new LinkedHashMap<>();
+            for (String memberId : memberIds) {
+                if (requested.contains(memberId)) {
+                    result.put(memberId, new Member(memberId, 10000));
+                }
+            }
+            return result;
+        });
+    }
+
+    @Test
+    @DisplayName("같은 회원을 동시에 조회하면 쿼리는 한번만 실행된다")
+    void singleFlight() {
+        //given
+        givenMembers("memberA");
+        loader = new MemberBatchLoader(repository, Duration.ofMillis(100), 100);
+
+        //when
+        List<CompletableFuture<Optional<Member>>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(loader.load("memberA"));
+        }
+
+        //then
+        for (CompletableFuture<Optional<Member>> future : futures) {
+            assertThat(future.join()).isPresent();
+        }
+        assertThat(queries).hasSize(1);
+        assertThat(queries.get(0)).containsExactly("memberA");
+    }
+
+    @Test
+    @DisplayName("window 안의 서로 다른 회원은 하나의 쿼리로 조회된다")
+    void microBatch() {
+        //given
+        givenMembers("memberA", "memberB");
+        loader = new MemberBatchLoader(repository, Duration.ofMillis(100), 100);
+
+        //when
+        CompletableFuture<Optional<Member>> memberA = loader.load("memberA");
+        CompletableFuture<Optional<Member>> memberB = loader.load("memberB");
+        CompletableFuture<Optional<Member>> missing = loader.load("missing");
+
+        //then
+        assertThat(memberA.join()).isPresent();
+        assertThat(memberB.join()).isPresent();
+        assertThat(missing.join()).isEmpty();
+        assertThat(queries).hasSize(1);
+        assertThat(queries.get(0)).containsExactlyInAnyOrder("memberA", "memberB", "missing");
+    }
+
+    @Test
+    @DisplayName("batch 가 가득 차면 window 를 기다리지 않는다")
+    void fullBatch() {
+        //given
+        givenMembers("memberA", "memberB");
+        loader = new MemberBatchLoader(repository, Duration.ofMinutes(1), 2);
+
+        //when
+        CompletableFuture<Optional<Member>> memberA = loader.load("memberA");
+        CompletableFuture<Optional<Member>> memberB = loader.load("memberB");
+
+        //then
+        assertThat(memberA).isCompleted();
+        assertThat(memberB.join()).isPresent();
+        verify(repository, times(1)).findAllById(anyCollection());
+    }
+
+    @Test
+    @DisplayName("close 이후의 조회는 실패한다")
+    void loadAfterClose() {
+        //given
+        givenMembers("memberA");
+        loader = new MemberBatchLoader(repository, Duration.ofMillis(100), 100);
+        loader.close();
+
+        //when
+        CompletableFuture<Optional<Member>> future = loader.load("memberA");
+
+        //then : 기다리지 않고 바로 실패
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(() -> loader.findById("memberA")).isInstanceOf(IllegalStateException.class);
+        verify(repository, never()).findAllById(anyCollection());
+    }
+}
@@ -0,0 +1,222 @@
+package hello.jdbc.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MyDbException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class MemberRepositoryV4_1Test {
+
+    public static final String Member_A = "memberV41";
+
+    HikariDataSource dataSource;
+    MemberRepositoryV4_1 repository;
+    MemberRepositoryV4_1 otherRepository; // identity map 을 공유하지 않는 별도 repository
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        repository = new MemberRepositoryV4_1(dataSource);
+        otherRepository = new MemberRepositoryV4_1(dataSource);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void afterEach() {
+        repository.delete(Member_A);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서는 같은 회원을 다시 조회하지 않는다")
+    void identityMap() {
+        repository.save(new Member(Member_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            Member first = repository.findById(Member_A);
+            Member second = repository.findById(Member_A);
+            assertThat(second).isSameAs(first);
+        });
+    }
+
+    @Test
+    @DisplayName("update 는 커밋 직전에 반영된다")
+    void deferredUpdate() {
+        repository.save(new Member(Member_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(Member_A, 9000);
+            repository.update(Member_A, 8000);
+
+            // 같은 트랜잭션 : dirty 상태가 보인다
+            assertThat(repository.findById(Member_A).getMoney()).isEqualTo(8000);
+            // 같은 커넥션이지만 아직 DB 에는 반영되지 않았다
+            assertThat(otherRepository.findById(Member_A).getMoney()).isEqualTo(10000);
+        });
+
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(8000);
+    }
+
+    @Test
+    @DisplayName("롤백되면 update 를 실행하지 않는다")
+    void rollback() {
+        repository.save(new Member(Member_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(Member_A, 5000);
+            status.setRollbackOnly();
+        });
+
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("없는 회원 조회는 예외 없이 처리한다")
+    void findByIdOptional() {
+        repository.save(new Member(Member_A, 10000));
+
+        assertThat(repository.findByIdOptional(Member_A)).isPresent();
+        assertThat(repository.existsById(Member_A)).isTrue();
+
+        repository.delete(Member_A);
+        assertThat(repository.findByIdOptional(Member_A)).isEmpty();
+        assertThat(repository.existsById(Member_A)).isFalse();
+    }
+
+    @Test
+    @DisplayName("여러 회원을 in 절 하나로 조회한다")
+    void findAllById() {
+        repository.save(new Member(Member_A, 10000));
+
+        Map<String, Member> result = repository.findAllById(List.of(Member_A, "missing"));
+
+        assertThat(result).containsOnlyKeys(Member_A);
+        assertThat(result.get(Member_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("saveOrUpdate 는 없으면 저장하고 있으면 금액을 변경한다")
+    void saveOrUpdate() {
+        repository.saveOrUpdate(new Member(Member_A, 10000));
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(10000);
+
+        repository.saveOrUpdate(new Member(Member_A, 20000));
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(20000);
+    }
+
+    @Test
+    @DisplayName("saveOrUpdate 뒤에 커밋 직전 flush 가 이전 update 로 덮어쓰지 않는다")
+    void saveOrUpdateDiscardsPendingUpdate() {
+        repository.save(new Member(Member_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.findById(Member_A);
+            repository.update(Member_A, 5000);
+            repository.saveOrUpdate(new Member(Member_A, 30000));
+            assertThat(repository.findById(Member_A).getMoney()).isEqualTo(30000);
+        });
+
+        assertThat(otherRepository.findById(Member_A).getMoney()).isEqualTo(30000);
+    }
+
+    @Test
+    @DisplayName("잔액이 충분하면 차감 후 잔액을 반환하고, 부족하거나 없는 회원이면 차감하지 않는다")
+    void debitIfSufficient() {
+        repository.save(new Member(Member_A, 10000));
+
+        assertThat(repository.debitIfSufficient(Member_A, 3000)).isEqualTo(OptionalInt.of(7000));
+        assertThat(repository.debitIfSufficient(Member_A, 8000)).isEmpty();
+        assertThat(repository.debitIfSufficient("missing", 1000)).isEmpty();
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(7000);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안의 반영되지 않은 update 를 먼저 반영한 뒤 차감한다")
+    void debitAfterPendingUpdate() {
+        repository.save(new Member(Member_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.findById(Member_A);
+            repository.update(Member_A, 2000);
+            assertThat(repository.debitIfSufficient(Member_A, 3000)).isEmpty();
+            assertThat(repository.debitIfSufficient(Member_A, 1500)).isEqualTo(OptionalInt.of(500));
+            assertThat(repository.findById(Member_A).getMoney()).isEqualTo(500);
+        });
+
+        assertThat(otherRepository.findById(Member_A).getMoney()).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("없는 회원을 update 하면 커밋이 실패하고 롤백된다")
+    void updateMissingMember() {
+        repository.save(new Member(Member_A, 10000));
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            repository.update(Member_A, 5000);
+            repository.update("missing", 1000);
+        })).isInstanceOf(MyDbException.class);
+
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("읽기/쓰기 트랜잭션에서 조회한 회원은 커밋까지 잠긴다")
+    void lockOnRead() throws SQLException {
+        repository.save(new Member(Member_A, 10000));
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.findById(Member_A);
+            assertThatThrownBy(() -> updateFromOtherConnection(Member_A, 1000)).isInstanceOf(SQLException.class);
+        });
+
+        //읽기 전용 트랜잭션은 잠그지 않는다
+        TransactionTemplate readOnly = new TransactionTemplate(txTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            repository.findById(Member_A);
+            try {
+                updateFromOtherConnection(Member_A, 1000);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(repository.findById(Member_A).getMoney()).isEqualTo(1000);
+    }
+
+    // 트랜잭션과 관계없는 커넥션에서 짧은 lock timeout 으로 update
+    private void updateFromOtherConnection(String memberId, int money) throws SQLException {
+        try (Connection con = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+             Statement stmt = con.createStatement();
+             PreparedStatement pstmt = con.prepareStatement("update member set money=? where member_id=?")) {
+            stmt.execute("set lock_timeout 100");
+            pstmt.setInt(1, money);
+            pstmt.setString(2, memberId);
+            pstmt.executeUpdate();
+        }
+    }
+}
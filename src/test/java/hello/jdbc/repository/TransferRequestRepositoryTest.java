@@ -0,0 +1,66 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import hello.jdbc.support.Deadline;
+import hello.jdbc.support.DeadlineContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TransferRequestRepositoryTest {
+
+    DataSource dataSource = mock(DataSource.class);
+    Connection con = mock(Connection.class);
+    PreparedStatement pstmt = mock(PreparedStatement.class);
+    TransferRequestRepository repository = new TransferRequestRepository(dataSource);
+
+    @BeforeEach
+    void beforeEach() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(pstmt);
+    }
+
+    @Test
+    void queryTimeout() throws SQLException {
+        //given : 쿼리 중에 마감 시각이 지난다
+        when(pstmt.executeUpdate()).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            throw new SQLTimeoutException("timeout");
+        });
+
+        //when, then
+        assertThatThrownBy(() -> DeadlineContext.run(Deadline.after(Duration.ofMillis(20)), () -> repository.save("req-1")))
+                .isInstanceOf(MyDeadlineExceededException.class);
+    }
+
+    @Test
+    void lockTimeoutIsNotDeadline() throws SQLException {
+        //given : 마감 시각이 남아 있는데 lock 대기 timeout
+        when(pstmt.executeQuery()).thenThrow(new SQLTimeoutException("lock timeout"));
+
+        //when, then
+        assertThatThrownBy(() -> repository.existsById("req-1"))
+                .isInstanceOf(MyDbException.class)
+                .isNotInstanceOf(MyDeadlineExceededException.class);
+        assertThatThrownBy(() -> DeadlineContext.run(Deadline.after(Duration.ofSeconds(10)), () -> repository.existsById("req-1")))
+                .isNotInstanceOf(MyDeadlineExceededException.class);
+    }
+
+    @Test
+    void duplicateKey() throws SQLException {
+        when(pstmt.executeUpdate()).thenThrow(new SQLException("duplicate", "23505", 23505));
+
+        assertThatThrownBy(() -> repository.save("req-1")).isInstanceOf(MyDuplicateKeyException.class);
+    }
+}
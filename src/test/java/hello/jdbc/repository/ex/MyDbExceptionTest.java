@@ -0,0 +1,27 @@
+package hello.jdbc.repository.ex;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MyDbExceptionTest {
+
+    @AfterEach
+    void after() {
+        MyDbException.setStackless(false);
+    }
+
+    @Test
+    void stackTrace() {
+        assertThat(new MyDbException("ex").getStackTrace()).isNotEmpty();
+    }
+
+    @Test
+    void stackless() {
+        MyDbException.setStackless(true);
+
+        assertThat(new MyDbException("ex").getStackTrace()).isEmpty();
+        assertThat(new MyDuplicateKeyException("ex").getStackTrace()).isEmpty(); // 하위 예외도 적용
+    }
+}
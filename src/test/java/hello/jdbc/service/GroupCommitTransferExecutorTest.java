@@ -0,0 +1,153 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 계좌이체 group commit
+ */
+@Slf4j
+@SpringBootTest
+class GroupCommitTransferExecutorTest {
+
+    public static final String Member_A = "memberA";
+    public static final String Member_B = "memberB";
+    public static final String Member_EX = "ex";
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberServiceV4 memberService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_1(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(memberRepository());
+        }
+    }
+
+    @AfterEach
+    void after() {
+        // 테스트 데이터 제거 : 리소스 정리
+        memberRepository.delete(Member_A);
+        memberRepository.delete(Member_B);
+        memberRepository.delete(Member_EX);
+    }
+
+    @Test
+    @DisplayName("동시 이체를 모아서 커밋, 실패한 요청만 격리")
+    void groupCommit() throws InterruptedException {
+        //given
+        memberRepository.save(new Member(Member_A, 10000));
+        memberRepository.save(new Member(Member_B, 10000));
+        memberRepository.save(new Member(Member_EX, 10000));
+
+        try (GroupCommitTransferExecutor executor =
+                     new GroupCommitTransferExecutor(dataSource, memberService, 100, Duration.ofMillis(20))) {
+            executor.start();
+
+            //when
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(Member_A, Member_B, 100));
+            }
+            CompletableFuture<Void> failed = executor.submit(Member_A, Member_EX, 100);
+            futures.forEach(CompletableFuture::join);
+
+            //then
+            assertThatThrownBy(failed::join)
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(memberRepository.findById(Member_A).getMoney()).isEqualTo(9000);
+        assertThat(memberRepository.findById(Member_B).getMoney()).isEqualTo(11000);
+        assertThat(memberRepository.findById(Member_EX).getMoney()).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("큐가 가득 차면 요청을 바로 실패시킨다")
+    void rejectWhenQueueFull() throws Exception {
+        //given : collector 가 첫 요청을 처리하면서 커넥션을 기다리는 동안, 큐 크기 1
+        CountDownLatch connecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataSource blocking = mock(DataSource.class);
+        when(blocking.getConnection()).thenAnswer(invocation -> {
+            connecting.countDown();
+            release.await();
+            throw new SQLException("db down");
+        });
+        GroupCommitTransferExecutor executor =
+                new GroupCommitTransferExecutor(blocking, mock(MemberServiceV4.class), 100, Duration.ZERO, 1);
+        executor.start();
+        CompletableFuture<Void> first = executor.submit(Member_A, Member_B, 100);
+        connecting.await();
+
+        //when
+        CompletableFuture<Void> queued = executor.submit(Member_A, Member_B, 100);
+        CompletableFuture<Void> rejected = executor.submit(Member_A, Member_B, 100);
+
+        //then
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(queued).isNotDone();
+        release.countDown();
+        executor.close();
+        assertThat(first).isDone();
+        assertThat(queued).isDone();
+    }
+
+    @Test
+    @DisplayName("close 이후의 요청은 바로 실패한다")
+    void rejectAfterClose() throws InterruptedException {
+        //given
+        GroupCommitTransferExecutor executor =
+                new GroupCommitTransferExecutor(dataSource, memberService, 100, Duration.ofMillis(20));
+        executor.start();
+        executor.close();
+
+        //when
+        CompletableFuture<Void> afterClose = executor.submit(Member_A, Member_B, 100);
+
+        //then
+        assertThat(afterClose).isCompletedExceptionally();
+    }
+}
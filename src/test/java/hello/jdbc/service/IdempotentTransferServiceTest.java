@@ -0,0 +1,97 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.TransferRequestRepository;
+import hello.jdbc.support.RecentKeyFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 멱등성 키 계좌이체
+ * transfer_request 테이블이 필요하다 (TransferRequestRepository 참고)
+ */
+@Slf4j
+@SpringBootTest
+class IdempotentTransferServiceTest {
+
+    public static final String Member_A = "memberA";
+    public static final String Member_B = "memberB";
+    public static final String REQUEST_ID = "test-request-1";
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private IdempotentTransferService transferService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+        private final PlatformTransactionManager transactionManager;
+
+        public TestConfig(DataSource dataSource, PlatformTransactionManager transactionManager) {
+            this.dataSource = dataSource;
+            this.transactionManager = transactionManager;
+        }
+
+        @Bean
+        MemberRepository memberRepository() {
+            return new MemberRepositoryV4_1(dataSource);
+        }
+
+        @Bean
+        MemberServiceV4 memberServiceV4() {
+            return new MemberServiceV4(memberRepository());
+        }
+
+        @Bean
+        IdempotentTransferService idempotentTransferService(MemberServiceV4 memberServiceV4) {
+            return new IdempotentTransferService(memberServiceV4, new TransferRequestRepository(dataSource),
+                    transactionManager, new RecentKeyFilter(1000, 10000, 0.01));
+        }
+    }
+
+    @AfterEach
+    void after() {
+        // 테스트 데이터 제거 : 리소스 정리
+        memberRepository.delete(Member_A);
+        memberRepository.delete(Member_B);
+        new JdbcTemplate(dataSource).update("delete from transfer_request where request_id = ?", REQUEST_ID);
+    }
+
+    @Test
+    @DisplayName("같은 요청 키로 재시도하면 한번만 이체")
+    void retry() {
+        //given
+        memberRepository.save(new Member(Member_A, 10000));
+        memberRepository.save(new Member(Member_B, 10000));
+
+        //when
+        boolean first = transferService.accountTransfer(REQUEST_ID, Member_A, Member_B, 2000);
+        boolean retry = transferService.accountTransfer(REQUEST_ID, Member_A, Member_B, 2000);
+
+        //then
+        assertThat(first).isTrue();
+        assertThat(retry).isFalse();
+        assertThat(memberRepository.findById(Member_A).getMoney()).isEqualTo(8000);
+        assertThat(memberRepository.findById(Member_B).getMoney()).isEqualTo(12000);
+    }
+}
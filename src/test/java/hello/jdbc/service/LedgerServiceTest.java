@@ -0,0 +1,161 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.LedgerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 원장 기반 계좌이체
+ * transfer_journal, balance_snapshot 테이블이 필요하다 (LedgerRepository 참고)
+ */
+@Slf4j
+@SpringBootTest
+class LedgerServiceTest {
+
+    public static final String Member_A = "ledgerA";
+    public static final String Member_B = "ledgerB";
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TestConfiguration
+    static class TestConfig {
+
+        private final DataSource dataSource;
+
+        public TestConfig(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Bean
+        LedgerRepository ledgerRepository() {
+            return new LedgerRepository(dataSource);
+        }
+
+        @Bean
+        LedgerService ledgerService() {
+            return new LedgerService(ledgerRepository());
+        }
+    }
+
+    @AfterEach
+    void after() {
+        // 테스트 데이터 제거 : 리소스 정리
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("delete from transfer_journal where member_id in (?, ?)", Member_A, Member_B);
+        template.update("delete from balance_snapshot where member_id in (?, ?)", Member_A, Member_B);
+    }
+
+    @Test
+    @DisplayName("원장 이체 후 잔액")
+    void accountTransfer() {
+        //given
+        ledgerService.openAccount(Member_A, 10000);
+        ledgerService.openAccount(Member_B, 10000);
+
+        //when
+        ledgerService.accountTransfer(Member_A, Member_B, 2000);
+        ledgerService.accountTransfer(Member_A, Member_B, 1000);
+
+        //then
+        assertThat(ledgerService.getBalance(Member_A)).isEqualTo(7000);
+        assertThat(ledgerService.getBalance(Member_B)).isEqualTo(13000);
+    }
+
+    @Test
+    @DisplayName("없는 계좌로 이체하거나 잔액이 부족하면 journal 을 남기지 않는다")
+    void rejectTransfer() {
+        //given
+        ledgerService.openAccount(Member_A, 10000);
+        ledgerService.openAccount(Member_B, 10000);
+
+        //when
+        assertThatThrownBy(() -> ledgerService.accountTransfer(Member_A, "unknown", 2000))
+                .isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> ledgerService.accountTransfer("unknown", Member_A, 2000))
+                .isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> ledgerService.accountTransfer(Member_A, Member_B, 10001))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertThat(ledgerService.getBalance(Member_A)).isEqualTo(10000);
+        assertThat(ledgerService.getBalance(Member_B)).isEqualTo(10000);
+        Integer journal = new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from transfer_journal where member_id in (?, ?, 'unknown')", Integer.class, Member_A, Member_B);
+        assertThat(journal).isZero();
+    }
+
+    @Test
+    @DisplayName("스냅샷 압축 후에도 잔액 유지")
+    void snapshot() {
+        //given
+        ledgerService.openAccount(Member_A, 10000);
+        ledgerService.openAccount(Member_B, 10000);
+        ledgerService.accountTransfer(Member_A, Member_B, 2000);
+
+        //when
+        ledgerService.takeSnapshot();
+        ledgerService.accountTransfer(Member_B, Member_A, 500);
+
+        //then : 스냅샷 + 이후 tail
+        assertThat(ledgerService.getBalance(Member_A)).isEqualTo(8500);
+        assertThat(ledgerService.getBalance(Member_B)).isEqualTo(11500);
+    }
+
+    @Test
+    @DisplayName("압축보다 늦게 커밋된 entry 는 id 가 작아도 tail 로 남아 잔액에 포함된다")
+    void lateCommitBelowCompaction() throws SQLException {
+        //given
+        ledgerService.openAccount(Member_A, 10000);
+        ledgerService.openAccount(Member_B, 10000);
+
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            // 먼저 entry_id 를 할당받고 커밋은 늦게 하는 이체
+            try (PreparedStatement pstmt = con.prepareStatement(
+                    "insert into transfer_journal(transfer_id, member_id, amount) values (?, ?, ?)")) {
+                pstmt.setString(1, "late-transfer");
+                pstmt.setString(2, Member_A);
+                pstmt.setInt(3, -700);
+                pstmt.addBatch();
+                pstmt.setString(1, "late-transfer");
+                pstmt.setString(2, Member_B);
+                pstmt.setInt(3, 700);
+                pstmt.addBatch();
+                pstmt.executeBatch();
+            }
+
+            //when : 더 큰 id 의 이체가 커밋되고 압축된 뒤에 커밋
+            ledgerService.accountTransfer(Member_A, Member_B, 2000);
+            assertThat(ledgerService.takeSnapshot()).isGreaterThanOrEqualTo(2);
+            con.commit();
+            con.setAutoCommit(true);
+        }
+
+        //then
+        assertThat(ledgerService.getBalance(Member_A)).isEqualTo(7300);
+        assertThat(ledgerService.getBalance(Member_B)).isEqualTo(12700);
+        ledgerService.takeSnapshot();
+        assertThat(ledgerService.getBalance(Member_A)).isEqualTo(7300);
+        assertThat(ledgerService.getBalance(Member_B)).isEqualTo(12700);
+    }
+}
@@ -0,0 +1,90 @@
+package hello.jdbc.service;
+
+import hello.jdbc.audit.TransferAudit;
+import hello.jdbc.audit.TransferAuditWriter;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class MemberServiceV4AuditTest {
+
+    DataSource dataSource = mock(DataSource.class);
+    Connection con = mock(Connection.class);
+    MemberRepository memberRepository = mock(MemberRepository.class);
+    TransferAuditWriter auditWriter = mock(TransferAuditWriter.class);
+    MemberServiceV4 memberService = new MemberServiceV4(memberRepository, null, auditWriter);
+    TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    @BeforeEach
+    void beforeEach() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(con);
+        when(memberRepository.findById("memberA")).thenReturn(new Member("memberA", 10000));
+        when(memberRepository.findById("memberB")).thenReturn(new Member("memberB", 10000));
+    }
+
+    @Test
+    void auditAfterCommit() {
+        //when
+        txTemplate.executeWithoutResult(status -> {
+            memberService.accountTransfer("memberA", "memberB", 2000);
+            verify(auditWriter, never()).record(any()); // 커밋 전에는 기록하지 않는다
+        });
+
+        //then
+        assertThat(recorded().getResult()).isEqualTo(TransferAudit.SUCCESS);
+    }
+
+    @Test
+    void auditError() {
+        //given : RuntimeException 이 아닌 Error
+        when(memberRepository.findById("memberA")).thenThrow(new StackOverflowError());
+
+        //when
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(
+                status -> memberService.accountTransfer("memberA", "memberB", 2000)))
+                .isInstanceOf(StackOverflowError.class);
+
+        //then
+        assertThat(recorded().getResult()).isEqualTo("StackOverflowError");
+    }
+
+    @Test
+    void auditRollbackAfterReturn() {
+        //when : 이체는 반환했지만 바깥에서 롤백
+        txTemplate.executeWithoutResult(status -> {
+            memberService.accountTransfer("memberA", "memberB", 2000);
+            status.setRollbackOnly();
+        });
+
+        //then
+        assertThat(recorded().getResult()).isEqualTo(TransferAudit.ROLLED_BACK);
+    }
+
+    @Test
+    void auditWithoutTransaction() {
+        memberService.accountTransfer("memberA", "memberB", 2000);
+
+        assertThat(recorded().getResult()).isEqualTo(TransferAudit.SUCCESS);
+    }
+
+    private TransferAudit recorded() {
+        ArgumentCaptor<TransferAudit> captor = ArgumentCaptor.forClass(TransferAudit.class);
+        verify(auditWriter).record(captor.capture());
+        TransferAudit audit = captor.getValue();
+        assertThat(audit.getFromId()).isEqualTo("memberA");
+        assertThat(audit.getMoney()).isEqualTo(2000);
+        return audit;
+    }
+}
@@ -0,0 +1,123 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 메모리 잔액 + 단일 writer 이체 엔진
+ */
+@Slf4j
+class TransferEngineTest {
+
+    public static final String Member_A = "memberA";
+    public static final String Member_B = "memberB";
+
+    HikariDataSource dataSource;
+    MemberRepository memberRepository;
+    TransferEngine transferEngine;
+
+    @BeforeEach
+    void before() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername(USERNAME);
+        dataSource.setPassword(PASSWORD);
+
+        memberRepository = new MemberRepositoryV4_1(dataSource);
+        transferEngine = new TransferEngine(dataSource, memberRepository, 1000, 1024, 256);
+        transferEngine.start();
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        transferEngine.close();
+        memberRepository.delete(Member_A);
+        memberRepository.delete(Member_B);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("동시 이체가 순서대로 반영되고 DB 에 기록된다")
+    void concurrentTransfer() {
+        //given
+        memberRepository.save(new Member(Member_A, 10000));
+        memberRepository.save(new Member(Member_B, 10000));
+
+        //when
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(transferEngine.submit(Member_A, Member_B, 10));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        //then
+        assertThat(transferEngine.getMoney(Member_A)).isEqualTo(9000);
+        assertThat(memberRepository.findById(Member_A).getMoney()).isEqualTo(9000);
+        assertThat(memberRepository.findById(Member_B).getMoney()).isEqualTo(11000);
+    }
+
+    @Test
+    @DisplayName("잔액 부족")
+    void insufficientMoney() {
+        //given
+        memberRepository.save(new Member(Member_A, 1000));
+        memberRepository.save(new Member(Member_B, 1000));
+
+        //when
+        assertThatThrownBy(() -> transferEngine.transfer(Member_A, Member_B, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertThat(memberRepository.findById(Member_A).getMoney()).isEqualTo(1000);
+        assertThat(memberRepository.findById(Member_B).getMoney()).isEqualTo(1000);
+    }
+
+    @Test
+    @DisplayName("엔진 경로에서도 이체 검증을 한다")
+    void validation() {
+        //given
+        memberRepository.save(new Member(Member_A, 10000));
+        memberRepository.save(new Member("ex", 10000));
+
+        try {
+            //when
+            assertThatThrownBy(() -> transferEngine.transfer(Member_A, "ex", 2000))
+                    .isInstanceOf(IllegalStateException.class);
+
+            //then : 메모리와 DB 모두 변경되지 않는다
+            assertThat(transferEngine.getMoney(Member_A)).isEqualTo(10000);
+            assertThat(memberRepository.findById(Member_A).getMoney()).isEqualTo(10000);
+            assertThat(memberRepository.findById("ex").getMoney()).isEqualTo(10000);
+        } finally {
+            memberRepository.delete("ex");
+        }
+    }
+
+    @Test
+    @DisplayName("close 이후의 이체 요청은 바로 실패한다")
+    void submitAfterClose() throws InterruptedException {
+        //given
+        transferEngine.close();
+
+        //when
+        CompletableFuture<Void> future = transferEngine.submit(Member_A, Member_B, 10);
+
+        //then
+        assertThat(future).isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,87 @@
+package hello.jdbc.support;
+
+import hello.jdbc.repository.ex.MyDeadlineExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class DeadlineContextTest {
+
+    DataSource dataSource = mock(DataSource.class);
+    Statement stmt = mock(Statement.class);
+
+    @Test
+    void remainingSecondsRoundedUp() throws SQLException {
+        //when : 1.5초 남음 -> 2초
+        DeadlineContext.run(Deadline.after(Duration.ofMillis(1500)), () -> apply(stmt));
+
+        //then
+        verify(stmt).setQueryTimeout(2);
+    }
+
+    @Test
+    void keepShorterTimeout() throws SQLException {
+        //given : 트랜잭션 timeout 이 이미 더 짧다
+        when(stmt.getQueryTimeout()).thenReturn(1);
+
+        //when
+        DeadlineContext.run(Deadline.after(Duration.ofSeconds(10)), () -> apply(stmt));
+
+        //then
+        verify(stmt, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void expiredDeadline() throws SQLException {
+        //when
+        assertThatThrownBy(() -> DeadlineContext.run(Deadline.after(Duration.ofMillis(-1)), () -> apply(stmt)))
+                .isInstanceOf(MyDeadlineExceededException.class);
+
+        //then : 쿼리를 보내지 않는다
+        verify(stmt, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void noDeadline() throws SQLException {
+        apply(stmt);
+
+        verify(stmt, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void exceededOnlyWhenAppliedTimeoutPassed() throws InterruptedException {
+        //deadline, 트랜잭션 timeout 이 없으면 lock 대기 timeout 등으로 본다
+        assertThat(DeadlineContext.isExceeded(dataSource)).isFalse();
+        assertThat(DeadlineContext.call(Deadline.after(Duration.ofSeconds(10)), () -> DeadlineContext.isExceeded(dataSource))).isFalse();
+        assertThat(DeadlineContext.call(Deadline.after(Duration.ofMillis(-1)), () -> DeadlineContext.isExceeded(dataSource))).isTrue();
+
+        //트랜잭션 timeout 이 지났으면 true
+        ConnectionHolder holder = new ConnectionHolder(mock(Connection.class));
+        holder.setTimeoutInMillis(1);
+        TransactionSynchronizationManager.bindResource(dataSource, holder);
+        try {
+            Thread.sleep(10);
+            assertThat(DeadlineContext.isExceeded(dataSource)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(dataSource);
+        }
+    }
+
+    private void apply(Statement stmt) {
+        try {
+            DeadlineContext.applyQueryTimeout(stmt, dataSource);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
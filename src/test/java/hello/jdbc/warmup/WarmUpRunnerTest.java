@@ -0,0 +1,102 @@
+package hello.jdbc.warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static hello.jdbc.connection.ConnectionConst.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmUpRunnerTest {
+
+    HikariDataSource hikari;
+    List<String> executed = new CopyOnWriteArrayList<>();
+    RecordingDataSource dataSource;
+
+    @BeforeEach
+    void beforeEach() {
+        hikari = new HikariDataSource();
+        hikari.setJdbcUrl(URL);
+        hikari.setUsername(USERNAME);
+        hikari.setPassword(PASSWORD);
+        dataSource = new RecordingDataSource(hikari);
+    }
+
+    @AfterEach
+    void afterEach() {
+        hikari.close();
+    }
+
+    @Test
+    @DisplayName("워밍업은 조회/변경 SQL 을 실제로 실행하고 워밍업 회원을 남기지 않는다")
+    void executesHotPathSql() {
+        //given
+        JdbcTemplate template = new JdbcTemplate(hikari);
+        String countSql = "select count(*) from member where member_id like '" + WarmUpRunner.WARM_UP_PREFIX + "%'";
+        Integer before = template.queryForObject(countSql, Integer.class);
+        WarmUpRunner runner = new WarmUpRunner(dataSource, new DataSourceTransactionManager(dataSource),
+                new MemberRepositoryV4_1(dataSource), 3);
+
+        //when
+        runner.run(null);
+
+        //then
+        assertThat(executed).filteredOn(sql -> sql.startsWith("select * from member")).hasSizeGreaterThanOrEqualTo(3 * 2);
+        assertThat(executed).filteredOn(sql -> sql.startsWith("update member")).hasSizeGreaterThanOrEqualTo(3 * 2);
+        assertThat(template.queryForObject(countSql, Integer.class)).isEqualTo(before);
+    }
+
+    // PreparedStatement 실행 SQL 기록
+    class RecordingDataSource extends DelegatingDataSource {
+
+        RecordingDataSource(HikariDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection con = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(con, method, args);
+                        if (method.getName().equals("prepareStatement")) {
+                            return recording((PreparedStatement) result, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement recording(PreparedStatement pstmt, String sql) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            executed.add(sql);
+                        }
+                        return invoke(pstmt, method, args);
+                    });
+        }
+
+        private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}